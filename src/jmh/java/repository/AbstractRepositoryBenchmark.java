@@ -0,0 +1,172 @@
+package repository;
+
+import domain.HasID;
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+/**
+ * The basic operations of the repositories of one backend, on a file holding `size` entities; the subclasses only
+ * create the file and the repositories, and load or write the whole file. The saved entity is dropped from memory
+ * only, so the repository keeps its size between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public abstract class AbstractRepositoryBenchmark<R extends AbstractCRUDRepository<?, ?>> {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"student", "tema", "nota"})
+    public String repository;
+
+    private String fileName;
+    private Fixture<?, ?> fixture;
+    private int next;
+
+    protected abstract String createFile(String prefix) throws IOException;
+
+    protected abstract AbstractCRUDRepository<String, Student> students(String fileName);
+
+    protected abstract AbstractCRUDRepository<String, Tema> teme(String fileName);
+
+    protected abstract AbstractCRUDRepository<Pair<String, String>, Nota> note(String fileName);
+
+    /**
+     * Reloads every entity of the repository from its file.
+     */
+    protected abstract void load(R repository);
+
+    /**
+     * Writes every entity of the repository to its file.
+     */
+    protected abstract void write(R repository);
+
+    /**
+     * Saves the entities the repository starts with; one write lock for all of them by default.
+     */
+    protected <ID, E extends HasID<ID>> void fill(AbstractCRUDRepository<ID, E> repository, List<E> entities) {
+        UnitOfWork locks = new UnitOfWork().write(repository);
+        try {
+            for (E entity : entities) {
+                repository.save(entity);
+            }
+        }
+        finally {
+            locks.close();
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        fileName = createFile("benchmark_" + repository);
+        switch (repository) {
+            case "student":
+                fixture = new Fixture<>(students(fileName), BenchmarkData::student);
+                break;
+            case "tema":
+                fixture = new Fixture<>(teme(fileName), BenchmarkData::tema);
+                break;
+            default:
+                fixture = new Fixture<>(note(fileName), BenchmarkData::nota);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(fileName);
+    }
+
+    private int nextIndex() {
+        next = next + 1 == size ? 0 : next + 1;
+        return next;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R repository() {
+        return (R) fixture.repository;
+    }
+
+    @Benchmark
+    public Object findOne() {
+        return fixture.findOne(nextIndex());
+    }
+
+    @Benchmark
+    public int findAll() {
+        int count = 0;
+        for (Object ignored : fixture.repository.findAll()) {
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public Object save() {
+        return fixture.saveAndForget(size + nextIndex());
+    }
+
+    @Benchmark
+    public int load() {
+        load(repository());
+        return fixture.repository.entities.size();
+    }
+
+    @Benchmark
+    public void writeAll() {
+        write(repository());
+    }
+
+    private final class Fixture<ID, E extends HasID<ID>> {
+        private final AbstractCRUDRepository<ID, E> repository;
+        private final IntFunction<E> entities;
+        private final List<ID> ids;
+
+        Fixture(AbstractCRUDRepository<ID, E> repository, IntFunction<E> entities) {
+            this.repository = repository;
+            this.entities = entities;
+
+            List<E> batch = new ArrayList<>(size);
+            ids = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                E entity = entities.apply(i);
+                batch.add(entity);
+                ids.add(entity.getID());
+            }
+            fill(repository, batch);
+        }
+
+        E findOne(int index) {
+            return repository.findOne(ids.get(index));
+        }
+
+        E saveAndForget(int index) {
+            E entity = entities.apply(index);
+            repository.save(entity);
+            repository.removeEntity(entity.getID());
+            return entity;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Valid entities for the benchmarks: every student has a grade for each of the HOMEWORKS homeworks,
+ * so a data set of n grades has n / HOMEWORKS students.
+ */
+public class BenchmarkData {
+    public static final int HOMEWORKS = 10;
+
+    public static Student student(int i) {
+        return new Student(String.valueOf(i), "student" + i, 221 + i % 10);
+    }
+
+    public static Tema tema(int i) {
+        return new Tema(String.valueOf(i), "tema " + i, 1 + i % 14, 1);
+    }
+
+    public static Nota nota(int i) {
+        return new Nota(new Pair<>(String.valueOf(i / HOMEWORKS), String.valueOf(i % HOMEWORKS)),
+                i % 11, 1 + i % 14, "feedback " + i % 7);
+    }
+
+    public static Path emptyXmlFile(String prefix) throws IOException {
+        Path file = Files.createTempFile(prefix, ".xml");
+        Files.write(file, "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n<Entitati/>\n"
+                .getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    public static void delete(String fileName) throws IOException {
+        Files.deleteIfExists(Path.of(fileName));
+        Files.deleteIfExists(Path.of(fileName + ".journal"));
+        Files.deleteIfExists(Path.of(fileName + ".tmp"));
+    }
+}
@@ -0,0 +1,47 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The basic operations of the binary repositories; save() is measured with its append.
+ */
+public class BinaryRepositoryBenchmark extends AbstractRepositoryBenchmark<AbstractBinaryRepository<?, ?>> {
+    @Override
+    protected String createFile(String prefix) throws IOException {
+        return Files.createTempFile(prefix, ".bin").toString();
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Student> students(String fileName) {
+        return new StudentBinaryRepository(new StudentValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Tema> teme(String fileName) {
+        return new TemaBinaryRepository(new TemaValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<Pair<String, String>, Nota> note(String fileName) {
+        return new NotaBinaryRepository(new NotaValidator(), fileName);
+    }
+
+    @Override
+    protected void load(AbstractBinaryRepository<?, ?> repository) {
+        repository.loadFromBinaryFile();
+    }
+
+    @Override
+    protected void write(AbstractBinaryRepository<?, ?> repository) {
+        repository.writeToBinaryFile();
+    }
+}
@@ -0,0 +1,63 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import exceptions.ValidationException;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+
+/**
+ * The DOM loader the grades were read with before the streaming one: it builds the whole tree of note.xml first.
+ * Kept for XmlLoadBenchmark only; the journals are not replayed, the file of the benchmark has none.
+ */
+public class DomNotaLoader {
+    public static void load(NotaXMLRepository repository) {
+        try {
+            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(repository.XMLfilename);
+            Element root = XMLdocument.getDocumentElement();
+            NodeList list = root.getChildNodes();
+
+            for(int i = 0; i < list.getLength(); i++) {
+                Node node = list.item(i);
+                if (node.getNodeType() == Element.ELEMENT_NODE) {
+                    try {
+                        Nota nota = getEntityFromNode((Element)node);
+                        repository.validate(nota);
+                        repository.putEntity(nota);
+                    }
+                    catch(ValidationException ve) {
+                        ve.printStackTrace();
+                    }
+                }
+            }
+        }
+        catch(ParserConfigurationException pce) {
+            pce.printStackTrace();
+        }
+        catch(SAXException s) {
+            s.printStackTrace();
+        }
+        catch(IOException i) {
+            i.printStackTrace();
+        }
+    }
+
+    private static Nota getEntityFromNode(Element node) {
+        String IDStudent = node.getAttributeNode("IDStudent").getValue();
+        String IDTema= node.getAttributeNode("IDTema").getValue();
+        double nota = Double.parseDouble(node.getElementsByTagName("Nota").item(0).getTextContent());
+        int saptamanaPredare = Integer.parseInt(node.getElementsByTagName("SaptamanaPredare").item(0).getTextContent());
+        String feedback = node.getElementsByTagName("Feedback").item(0).getTextContent();
+        Node notaInitiala = node.getElementsByTagName("NotaInitiala").item(0);
+
+        return new Nota(new Pair<>(IDStudent, IDTema), nota, saptamanaPredare, feedback,
+                notaInitiala == null ? null : Double.parseDouble(notaInitiala.getTextContent()));
+    }
+}
@@ -0,0 +1,47 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * The basic operations of the text repositories; save() is measured with its append.
+ */
+public class FileRepositoryBenchmark extends AbstractRepositoryBenchmark<AbstractFileRepository<?, ?>> {
+    @Override
+    protected String createFile(String prefix) throws IOException {
+        return Files.createTempFile(prefix, ".txt").toString();
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Student> students(String fileName) {
+        return new StudentFileRepository(new StudentValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Tema> teme(String fileName) {
+        return new TemaFileRepository(new TemaValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<Pair<String, String>, Nota> note(String fileName) {
+        return new NotaFileRepository(new NotaValidator(), fileName);
+    }
+
+    @Override
+    protected void load(AbstractFileRepository<?, ?> repository) {
+        repository.loadFromFile();
+    }
+
+    @Override
+    protected void write(AbstractFileRepository<?, ?> repository) {
+        repository.writeToFileAll();
+    }
+}
@@ -0,0 +1,100 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import validation.NotaValidator;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grades saved per second by 1, 4 and 16 concurrent writers, with every save forced to the disk before it returns:
+ * one fsync per grade (FSYNC) against one fsync per batch of concurrent grades (GROUP_COMMIT), for the journal of
+ * the XML repository and for the text repository. The saved grade is then dropped from memory only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupCommitBenchmark {
+    @Param({"FSYNC", "GROUP_COMMIT"})
+    public Durability durability;
+
+    @Param({"xml", "text"})
+    public String format;
+
+    private AbstractCRUDRepository<Pair<String, String>, Nota> repository;
+    private String fileName;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Setup
+    public void setUp() throws IOException {
+        if (format.equals("xml")) {
+            fileName = BenchmarkData.emptyXmlFile("benchmark_group_commit").toString();
+            NotaXMLRepository xmlRepository = new NotaXMLRepository(new NotaValidator(), fileName);
+            xmlRepository.enableJournal(10_000);
+            xmlRepository.setDurability(durability);
+            repository = xmlRepository;
+        }
+        else {
+            fileName = Files.createTempFile("benchmark_group_commit", ".txt").toString();
+            NotaFileRepository textRepository = new NotaFileRepository(new NotaValidator(), fileName);
+            textRepository.setDurability(durability);
+            repository = textRepository;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        repository.close();
+        BenchmarkData.delete(fileName);
+    }
+
+    private Nota saveAndForget() {
+        Nota nota = BenchmarkData.nota(next.getAndIncrement());
+        repository.save(nota);
+        repository.lockForWrite();
+        try {
+            repository.removeEntity(nota.getID());
+        }
+        finally {
+            repository.unlockWrite();
+        }
+        return nota;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Nota writers1() {
+        return saveAndForget();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Nota writers4() {
+        return saveAndForget();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Nota writers16() {
+        return saveAndForget();
+    }
+}
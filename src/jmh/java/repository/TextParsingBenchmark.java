@@ -0,0 +1,131 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import generator.DatasetGenerator;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import validation.NotaValidator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Load throughput of note.txt, in lines per second (the "lines" counter): the in-place tokenizer used by the text
+ * repositories against the previous readLine + split("#") + parse loader. The *Load benchmarks build and store
+ * the entities as well; the *Parse ones only parse the numeric fields, to show the cost of the parsing alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextParsingBenchmark {
+    @Param({"100000", "1000000"})
+    public int lines;
+
+    private Path directory;
+    private NotaFileRepository repository;
+    private final NotaValidator validator = new NotaValidator();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Lines {
+        public long lines;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("benchmark_text");
+        new DatasetGenerator(42, lines / BenchmarkData.HOMEWORKS, BenchmarkData.HOMEWORKS, BenchmarkData.HOMEWORKS)
+                .writeText(directory);
+        repository = new NotaFileRepository(validator, directory.resolve("note.txt").toString());
+    }
+
+    @TearDown
+    public void tearDown() {
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        directory.toFile().delete();
+    }
+
+    @Benchmark
+    public long tokenizerParse(Lines counter) throws IOException {
+        long sum = 0;
+        try (Reader reader = new FileReader(repository.filename)) {
+            LineTokenizer line = new LineTokenizer(reader, 1 << 16);
+            while (line.nextLine()) {
+                sum += line.getInt(3) + (long) line.getDouble(2);
+            }
+        }
+        counter.lines += lines;
+        return sum;
+    }
+
+    @Benchmark
+    public long splitParse(Lines counter) throws IOException {
+        long sum = 0;
+        try (BufferedReader buffer = new BufferedReader(new FileReader(repository.filename))) {
+            String line;
+            while ((line = buffer.readLine()) != null) {
+                String[] result = line.split("#");
+                sum += Integer.parseInt(result[3]) + (long) Double.parseDouble(result[2]);
+            }
+        }
+        counter.lines += lines;
+        return sum;
+    }
+
+    @Benchmark
+    public int tokenizerLoad(Lines counter) {
+        repository.loadFromFile();
+        counter.lines += lines;
+        return repository.entities.size();
+    }
+
+    @Benchmark
+    public int splitLoad(Lines counter) throws IOException {
+        Map<Pair<String, String>, Nota> loaded = new HashMap<>();
+        try (BufferedReader buffer = new BufferedReader(new FileReader(repository.filename))) {
+            List<String> allLines = buffer.lines().collect(Collectors.toList());
+            for (String line : allLines) {
+                String[] result = line.split("#");
+                Nota nota = new Nota(new Pair<>(result[0], result[1]), Double.parseDouble(result[2]),
+                        Integer.parseInt(result[3]), result[4]);
+                validator.validate(nota);
+                loaded.put(nota.getID(), nota);
+            }
+        }
+        counter.lines += lines;
+        return loaded.size();
+    }
+}
@@ -0,0 +1,54 @@
+package repository;
+
+import domain.HasID;
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * The basic operations of the XML repositories; save() is measured with the write of the whole snapshot.
+ */
+public class XMLRepositoryBenchmark extends AbstractRepositoryBenchmark<AbstractXMLRepository<?, ?>> {
+    @Override
+    protected String createFile(String prefix) throws IOException {
+        return BenchmarkData.emptyXmlFile(prefix).toString();
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Student> students(String fileName) {
+        return new StudentXMLRepository(new StudentValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<String, Tema> teme(String fileName) {
+        return new TemaXMLRepository(new TemaValidator(), fileName);
+    }
+
+    @Override
+    protected AbstractCRUDRepository<Pair<String, String>, Nota> note(String fileName) {
+        return new NotaXMLRepository(new NotaValidator(), fileName);
+    }
+
+    @Override
+    protected void load(AbstractXMLRepository<?, ?> repository) {
+        repository.clearEntities();
+        repository.loadFromXmlFile();
+    }
+
+    @Override
+    protected void write(AbstractXMLRepository<?, ?> repository) {
+        repository.writeToXmlFile();
+    }
+
+    @Override
+    protected <ID, E extends HasID<ID>> void fill(AbstractCRUDRepository<ID, E> repository, List<E> entities) {
+        ((AbstractXMLRepository<ID, E>) repository).saveAll(entities);
+    }
+}
@@ -0,0 +1,172 @@
+package repository;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import domain.Nota;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import validation.NotaValidator;
+
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the streaming (StAX) and DOM loaders on a note.xml of `grades` grades, by time and by heap: peakHeapMb is
+ * the most heap used during one load, retainedHeapMb the heap still used after it and a forced GC, both above the
+ * heap used before the load. -prof gc only gives the bytes allocated (gc.alloc.rate.norm), which is not the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XmlLoadBenchmark {
+    @Param({"200000"})
+    public int grades;
+
+    private NotaXMLRepository repository;
+
+    /**
+     * The heap is the largest of the heap used when the load ends and the heap used right before each GC during it,
+     * since it only grows between two GCs; the GCs are told by their notifications. The counters are the largest of
+     * the iteration: the "Secondary result" lines average the iterations, the final table adds them up.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        private static final double MB = 1024 * 1024;
+
+        public double peakHeapMb;
+        public double retainedHeapMb;
+
+        private final Set<String> heapPools = new HashSet<>();
+        private final AtomicLong notifications = new AtomicLong();
+        private final AtomicLong usedBeforeGc = new AtomicLong();
+        private long collectionsBefore;
+        private long baseline;
+
+        @Setup(Level.Trial)
+        public void listen() {
+            collectionsBefore = collections();
+            for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() == MemoryType.HEAP) {
+                    heapPools.add(pool.getName());
+                }
+            }
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                        GarbageCollectionNotificationInfo info =
+                                GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                        long used = 0;
+                        for (String pool : heapPools) {
+                            MemoryUsage usage = info.getGcInfo().getMemoryUsageBeforeGc().get(pool);
+                            used += usage == null ? 0 : usage.getUsed();
+                        }
+                        usedBeforeGc.accumulateAndGet(used, Math::max);
+                        notifications.incrementAndGet();
+                    }
+                }, null, null);
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakHeapMb = 0;
+            retainedHeapMb = 0;
+        }
+
+        @Setup(Level.Invocation)
+        public void beforeLoad(XmlLoadBenchmark benchmark) {
+            benchmark.repository.clearEntities();
+            System.gc();
+            awaitNotifications();
+            baseline = heapUsed();
+            usedBeforeGc.set(0);
+        }
+
+        @TearDown(Level.Invocation)
+        public void afterLoad() {
+            awaitNotifications();
+            long peak = Math.max(usedBeforeGc.get(), heapUsed());
+            System.gc();
+            long retained = heapUsed();
+            peakHeapMb = Math.max(peakHeapMb, (peak - baseline) / MB);
+            retainedHeapMb = Math.max(retainedHeapMb, (retained - baseline) / MB);
+        }
+
+        private static long heapUsed() {
+            return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        }
+
+        /**
+         * Waits, for at most a second, until the notification of every GC done so far was received.
+         */
+        private void awaitNotifications() {
+            long expected = collections() - collectionsBefore;
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (notifications.get() < expected && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private static long collections() {
+            long collections = 0;
+            for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+                collections += Math.max(0, collector.getCollectionCount());
+            }
+            return collections;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        repository = new NotaXMLRepository(new NotaValidator(), BenchmarkData.emptyXmlFile("benchmark_load").toString());
+        List<Nota> note = new ArrayList<>(grades);
+        for (int i = 0; i < grades; i++) {
+            note.add(BenchmarkData.nota(i));
+        }
+        repository.saveAll(note);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        BenchmarkData.delete(repository.XMLfilename);
+    }
+
+    @Benchmark
+    public int stax(Heap heap) {
+        repository.loadFromXmlFile();
+        return repository.entities.size();
+    }
+
+    @Benchmark
+    public int dom(Heap heap) {
+        DomNotaLoader.load(repository);
+        return repository.entities.size();
+    }
+}
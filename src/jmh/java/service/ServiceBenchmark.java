@@ -0,0 +1,141 @@
+package service;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.BenchmarkData;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * saveNota and createStudentFile end to end, with `size` grades already stored. createStudentFile writes its report
+ * into the working directory, as in the application; it is measured both when the report is up to date and when it
+ * has to be written again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServiceBenchmark {
+    private static final String STUDENT = "0";
+    private static final String TEMA_NOUA = "benchmark";
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean journaled;
+
+    private Service service;
+    private NotaXMLRepository notaRepository;
+    private final List<String> files = new ArrayList<>();
+
+    @Setup
+    public void setUp() throws IOException {
+        int students = Math.max(1, size / BenchmarkData.HOMEWORKS);
+        String studentFile = BenchmarkData.emptyXmlFile("benchmark_studenti").toString();
+        String temaFile = BenchmarkData.emptyXmlFile("benchmark_teme").toString();
+        String notaFile = BenchmarkData.emptyXmlFile("benchmark_note").toString();
+        files.add(studentFile);
+        files.add(temaFile);
+        files.add(notaFile);
+        files.add(BenchmarkData.student(Integer.parseInt(STUDENT)).getNume() + ".txt");
+        BenchmarkData.delete(files.get(3));
+
+        StudentXMLRepository studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile);
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), temaFile);
+        notaRepository = new NotaXMLRepository(new NotaValidator(), notaFile);
+
+        List<Student> studentBatch = new ArrayList<>(students);
+        for (int i = 0; i < students; i++) {
+            studentBatch.add(BenchmarkData.student(i));
+        }
+        List<Tema> temaBatch = new ArrayList<>();
+        for (int i = 0; i < BenchmarkData.HOMEWORKS; i++) {
+            temaBatch.add(BenchmarkData.tema(i));
+        }
+        temaBatch.add(new Tema(TEMA_NOUA, "tema noua", 14, 1));
+        List<Nota> notaBatch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            notaBatch.add(BenchmarkData.nota(i));
+        }
+
+        studentRepository.saveAll(studentBatch);
+        temaRepository.saveAll(temaBatch);
+        notaRepository.saveAll(notaBatch);
+
+        if (journaled) {
+            notaRepository.enableJournal(1000);
+        }
+        service = new Service(studentRepository, temaRepository, notaRepository);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (String file : files) {
+            BenchmarkData.delete(file);
+        }
+    }
+
+    /**
+     * Removes the grade added by the measured saveNota, outside the measurement.
+     */
+    @State(Scope.Benchmark)
+    public static class SavedGrade {
+        @TearDown(Level.Invocation)
+        public void delete(ServiceBenchmark benchmark) {
+            benchmark.notaRepository.delete(new Pair<>(STUDENT, TEMA_NOUA));
+        }
+    }
+
+    @Benchmark
+    public void saveNota(SavedGrade savedGrade) {
+        service.saveNota(STUDENT, TEMA_NOUA, 9, 14, "BINE");
+    }
+
+    /**
+     * Deletes the report before each invocation, so that createStudentFile has to write it again.
+     */
+    @State(Scope.Benchmark)
+    public static class DeletedReport {
+        @Setup(Level.Invocation)
+        public void delete(ServiceBenchmark benchmark) throws IOException {
+            BenchmarkData.delete(benchmark.files.get(3));
+        }
+    }
+
+    @Benchmark
+    public void createStudentFile() {
+        service.createStudentFile(STUDENT, "0");
+    }
+
+    @Benchmark
+    public void createStudentFileRewritten(DeletedReport deletedReport) {
+        service.createStudentFile(STUDENT, "0");
+    }
+}
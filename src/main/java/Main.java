@@ -2,6 +2,7 @@ import console.UI;
 import domain.Nota;
 import domain.Student;
 import domain.Tema;
+import metrics.Metrics;
 import repository.NotaXMLRepository;
 import repository.StudentXMLRepository;
 import repository.TemaXMLRepository;
@@ -13,6 +14,13 @@ import validation.Validator;
 
 public class Main {
     public static void main(String[] args) {
+        // metrics are visible over JMX; -Dmetrics.dump.seconds=N also prints them to stderr every N seconds
+        Metrics.registerMBean();
+        Long dumpSeconds = Long.getLong("metrics.dump.seconds");
+        if (dumpSeconds != null && dumpSeconds > 0) {
+            Metrics.startPeriodicDump(dumpSeconds, System.err);
+        }
+
         Validator<Student> studentValidator = new StudentValidator();
         Validator<Tema> temaValidator = new TemaValidator();
         Validator<Nota> notaValidator = new NotaValidator();
@@ -20,10 +28,12 @@ public class Main {
         StudentXMLRepository fileRepository1 = new StudentXMLRepository(studentValidator, "studenti.xml");
         TemaXMLRepository fileRepository2 = new TemaXMLRepository(temaValidator, "teme.xml");
         NotaXMLRepository fileRepository3 = new NotaXMLRepository(notaValidator, "note.xml");
+        fileRepository3.enableJournal(1000);
 
         Service service = new Service(fileRepository1, fileRepository2, fileRepository3);
         UI consola = new UI(service);
         consola.run();
+        fileRepository3.checkpoint();
 
         //PENTRU GUI
         // de avut un check: daca profesorul introduce sau nu saptamana la timp
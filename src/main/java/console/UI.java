@@ -6,9 +6,12 @@ import domain.Tema;
 import exceptions.AlreadyExistingEntityException;
 import exceptions.GradeNonExistentStudentOrHomeworkException;
 import exceptions.ValidationException;
+import service.ReportsResult;
 import service.Service;
 
+import java.nio.file.Paths;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 public class UI {
     private Service service;
@@ -33,6 +36,8 @@ public class UI {
 
         System.out.println("5. Prelungeste deadline-ul unei teme.");
 
+        System.out.println("6. Genereaza rapoartele tuturor studentilor.");
+
         System.out.println("0. EXIT \n");
     }
 
@@ -190,6 +195,22 @@ public class UI {
         }
     }
 
+    public void uiGenerateAllReports() {
+        Scanner scanner = new Scanner(System.in);
+
+        System.out.println("Introduceti directorul rapoartelor: ");
+        String directory = scanner.nextLine();
+
+        ReportsResult result = service.generateAllReports(Paths.get(directory), Runtime.getRuntime().availableProcessors(),
+                (done, total) -> {
+                    if (done == total || done % Math.max(1, total / 10) == 0) {
+                        System.out.println("Rapoarte generate: " + done + "/" + total);
+                    }
+                });
+        System.out.printf("%d rapoarte scrise din %d, in %d ms (%.1f rapoarte/s) \n", result.getWritten(),
+                result.getTotal(), TimeUnit.NANOSECONDS.toMillis(result.getElapsedNanos()), result.getRapoartePeSecunda());
+    }
+
     public void run() {
         Scanner scanner = new Scanner(System.in);
         int cmd = -1;
@@ -231,6 +252,9 @@ public class UI {
                 case 5:
                     uiExtendDeadline();
                     break;
+                case 6:
+                    uiGenerateAllReports();
+                    break;
                 case 0:
                     cmd = 0;
                     break;
@@ -5,12 +5,18 @@ public class Nota implements HasID<Pair<String, String>> {
     private double nota;
     private int saptamanaPredare;
     private String feedback;
+    private Double notaInitiala;
 
     public Nota(Pair<String, String> idNota, double nota, int saptamanaPredare, String feedback) {
+        this(idNota, nota, saptamanaPredare, feedback, null);
+    }
+
+    public Nota(Pair<String, String> idNota, double nota, int saptamanaPredare, String feedback, Double notaInitiala) {
         this.idNota = idNota;
         this.nota = nota;
         this.saptamanaPredare = saptamanaPredare;
         this.feedback = feedback;
+        this.notaInitiala = notaInitiala;
     }
 
     @Override
@@ -31,6 +37,13 @@ public class Nota implements HasID<Pair<String, String>> {
 
     public void setFeedback(String feedback) { this.feedback = feedback; }
 
+    /**
+     * @return the grade as it was given, before the late penalty, or null if it is not known
+     */
+    public Double getNotaInitiala() { return notaInitiala; }
+
+    public void setNotaInitiala(Double notaInitiala) { this.notaInitiala = notaInitiala; }
+
     @Override
     public String toString() {
         return "Nota{" +
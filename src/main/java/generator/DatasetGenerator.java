@@ -0,0 +1,239 @@
+package generator;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import domain.Tema;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+import validation.Validator;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+/**
+ * Generates large, reproducible data sets for the repositories: the same seed and sizes always give the same files.
+ * The entities are produced one at a time and written as they are produced, so any size fits in memory.
+ * Every entity passes the validators of the application.
+ *
+ * Usage: DatasetGenerator outputDir students homeworks gradesPerStudent [seed] [xml|txt|all]
+ */
+public class DatasetGenerator {
+    private static final String[] PRENUME = {"ana", "maria", "ioana", "elena", "andreea", "ion", "vasile", "george",
+            "mihai", "andrei", "alexandru", "cristina", "radu", "horia", "diana", "bogdan"};
+    private static final String[] NUME = {"popescu", "ionescu", "pop", "rusu", "moldovan", "stan", "dumitru", "munteanu",
+            "matei", "constantin", "marin", "lazar", "suciu", "rus", "toma", "ilie"};
+    private static final String[] FEEDBACK = {"BINE", "FOARTE BINE", "OK", "SLAB", "EXCELENT", "INCOMPLET",
+            "LIPSESTE TESTAREA", "INTARZIAT"};
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+    private static final String ENTITY_INDENT = "\n    ";
+    private static final String CHILD_INDENT = "\n        ";
+
+    private final long seed;
+    private final int students;
+    private final int homeworks;
+    private final int gradesPerStudent;
+
+    public DatasetGenerator(long seed, int students, int homeworks, int gradesPerStudent) {
+        if (students < 0 || homeworks < 0 || gradesPerStudent < 0 || (gradesPerStudent > 0 && homeworks == 0)) {
+            throw new IllegalArgumentException("Dimensiuni invalide!\n");
+        }
+        this.seed = seed;
+        this.students = students;
+        this.homeworks = homeworks;
+        this.gradesPerStudent = Math.min(gradesPerStudent, homeworks);
+        if ((long) students * this.gradesPerStudent > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Prea multe note!\n");
+        }
+    }
+
+    public long getNumberOfGrades() { return (long) students * gradesPerStudent; }
+
+    public Iterator<Student> students() {
+        Random random = new Random(seed);
+        StudentValidator validator = new StudentValidator();
+        return validated(students, i -> {
+            String nume = PRENUME[random.nextInt(PRENUME.length)] + " " + NUME[random.nextInt(NUME.length)];
+            int grupa = (1 + random.nextInt(9)) * 100 + (1 + random.nextInt(3)) * 10 + 1 + random.nextInt(7);
+            return new Student(String.valueOf(i + 1), nume, grupa);
+        }, validator);
+    }
+
+    public Iterator<Tema> teme() {
+        Random random = new Random(seed + 1);
+        TemaValidator validator = new TemaValidator();
+        return validated(homeworks, i -> {
+            int startline = 1 + random.nextInt(14);
+            int deadline = startline + random.nextInt(15 - startline);
+            return new Tema(String.valueOf(i + 1), "Tema de laborator " + (i + 1), deadline, startline);
+        }, validator);
+    }
+
+    /**
+     * The grades of every student, for gradesPerStudent distinct homeworks each; the values are final grades,
+     * as stored by the application after the late penalty.
+     */
+    public Iterator<Nota> note() {
+        Random random = new Random(seed + 2);
+        NotaValidator validator = new NotaValidator();
+        int[] firstTema = new int[1];
+        return validated(students * gradesPerStudent, i -> {
+            int student = i / gradesPerStudent;
+            int grade = i % gradesPerStudent;
+            if (grade == 0) {
+                firstTema[0] = random.nextInt(homeworks);
+            }
+            String idTema = String.valueOf((firstTema[0] + grade) % homeworks + 1);
+            double valoare = random.nextInt(101) / 10.0;
+            return new Nota(new Pair<>(String.valueOf(student + 1), idTema), valoare, 1 + random.nextInt(14),
+                    FEEDBACK[random.nextInt(FEEDBACK.length)]);
+        }, validator);
+    }
+
+    private static <E> Iterator<E> validated(int count, IntFunction<E> generator, Validator<E> validator) {
+        return new Iterator<E>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() { return next < count; }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                E entity = generator.apply(next++);
+                validator.validate(entity);
+                return entity;
+            }
+        };
+    }
+
+    /**
+     * Writes studenti.xml, teme.xml and note.xml into the directory, in the layout of the XML repositories.
+     */
+    public void writeXml(Path directory) throws IOException, XMLStreamException {
+        writeXml(directory.resolve("studenti.xml"), students(), (writer, student) -> {
+            writer.writeStartElement("student");
+            writer.writeAttribute("ID", student.getID());
+            writeElement(writer, "Nume", student.getNume());
+            writeElement(writer, "Grupa", String.valueOf(student.getGrupa()));
+        });
+        writeXml(directory.resolve("teme.xml"), teme(), (writer, tema) -> {
+            writer.writeStartElement("tema");
+            writer.writeAttribute("ID", tema.getID());
+            writeElement(writer, "Descriere", tema.getDescriere());
+            writeElement(writer, "Deadline", String.valueOf(tema.getDeadline()));
+            writeElement(writer, "Startline", String.valueOf(tema.getStartline()));
+        });
+        writeXml(directory.resolve("note.xml"), note(), (writer, nota) -> {
+            writer.writeStartElement("nota");
+            writer.writeAttribute("IDStudent", nota.getID().getObject1());
+            writer.writeAttribute("IDTema", nota.getID().getObject2());
+            writeElement(writer, "Nota", String.valueOf(nota.getNota()));
+            writeElement(writer, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare()));
+            writeElement(writer, "Feedback", nota.getFeedback());
+        });
+    }
+
+    /**
+     * Writes studenti.txt, teme.txt and note.txt into the directory, in the layout of the text repositories.
+     */
+    public void writeText(Path directory) throws IOException {
+        writeText(directory.resolve("studenti.txt"), students(),
+                student -> student.getID() + "#" + student.getNume() + "#" + student.getGrupa());
+        writeText(directory.resolve("teme.txt"), teme(),
+                tema -> tema.getID() + "#" + tema.getDescriere() + "#" + tema.getDeadline() + "#" + tema.getStartline());
+        writeText(directory.resolve("note.txt"), note(),
+                nota -> nota.getID().getObject1() + "#" + nota.getID().getObject2() + "#" + nota.getNota() + "#"
+                        + nota.getSaptamanaPredare() + "#" + nota.getFeedback());
+    }
+
+    private interface EntityWriter<E> {
+        void write(XMLStreamWriter writer, E entity) throws XMLStreamException;
+    }
+
+    private interface LineFormat<E> {
+        String format(E entity);
+    }
+
+    private static <E> void writeXml(Path file, Iterator<E> entities, EntityWriter<E> entityWriter)
+            throws IOException, XMLStreamException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            out.write(XML_DECLARATION.getBytes(StandardCharsets.US_ASCII));
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+
+            if (!entities.hasNext()) {
+                writer.writeEmptyElement("Entitati");
+            }
+            else {
+                writer.writeStartElement("Entitati");
+                while (entities.hasNext()) {
+                    writer.writeCharacters(ENTITY_INDENT);
+                    entityWriter.write(writer, entities.next());
+                    writer.writeCharacters(ENTITY_INDENT);
+                    writer.writeEndElement();
+                }
+                writer.writeCharacters("\n");
+                writer.writeEndElement();
+            }
+            writer.writeCharacters("\n");
+            writer.writeEndDocument();
+            writer.close();
+        }
+    }
+
+    private static void writeElement(XMLStreamWriter writer, String tag, String value) throws XMLStreamException {
+        writer.writeCharacters(CHILD_INDENT);
+        writer.writeStartElement(tag);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+    }
+
+    private static <E> void writeText(Path file, Iterator<E> entities, LineFormat<E> format) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, Charset.defaultCharset())) {
+            while (entities.hasNext()) {
+                writer.write(format.format(entities.next()));
+                writer.write("\n");
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length < 4) {
+            System.out.println("Utilizare: DatasetGenerator directorIesire studenti teme notePeStudent [seed] [xml|txt|all]");
+            return;
+        }
+
+        Path directory = Paths.get(args[0]);
+        DatasetGenerator generator = new DatasetGenerator(args.length > 4 ? Long.parseLong(args[4]) : 42,
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+        String format = args.length > 5 ? args[5] : "all";
+        Files.createDirectories(directory);
+
+        long start = System.nanoTime();
+        if (!format.equals("txt")) {
+            generator.writeXml(directory);
+        }
+        if (!format.equals("xml")) {
+            generator.writeText(directory);
+        }
+        System.out.printf("%d studenti, %d teme, %d note generate in %s in %d ms%n", generator.students, generator.homeworks,
+                generator.getNumberOfGrades(), directory, (System.nanoTime() - start) / 1_000_000);
+    }
+}
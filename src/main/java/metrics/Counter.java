@@ -0,0 +1,18 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonic count (operations, bytes, entities) that many threads can add to without contention.
+ */
+public class Counter {
+    private final LongAdder value = new LongAdder();
+
+    public void increment() { value.increment(); }
+
+    public void add(long amount) { value.add(amount); }
+
+    public long get() { return value.sum(); }
+
+    public void reset() { value.reset(); }
+}
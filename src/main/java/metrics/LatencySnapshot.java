@@ -0,0 +1,48 @@
+package metrics;
+
+/**
+ * The state of a LatencyHistogram at one moment; the getters are in microseconds and are the attributes shown by JMX.
+ */
+public class LatencySnapshot {
+    private final long count;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+
+    public LatencySnapshot(long count, long totalNanos, long maxNanos, long p50Nanos, long p90Nanos, long p99Nanos,
+                           long p999Nanos) {
+        this.count = count;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+    }
+
+    public long getCount() { return count; }
+
+    public double getTotalMillis() { return totalNanos / 1e6; }
+
+    public double getMeanMicros() { return count == 0 ? 0 : totalNanos / 1e3 / count; }
+
+    public double getP50Micros() { return p50Nanos / 1e3; }
+
+    public double getP90Micros() { return p90Nanos / 1e3; }
+
+    public double getP99Micros() { return p99Nanos / 1e3; }
+
+    public double getP999Micros() { return p999Nanos / 1e3; }
+
+    public double getMaxMicros() { return maxNanos / 1e3; }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus total=%.1fms",
+                count, getMeanMicros(), getP50Micros(), getP90Micros(), getP99Micros(), getP999Micros(), getMaxMicros(),
+                getTotalMillis());
+    }
+}
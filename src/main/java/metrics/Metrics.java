@@ -0,0 +1,117 @@
+package metrics;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The registry of all counters and latency histograms, by name ("NotaXMLRepository.save", "Service.saveNota", ...).
+ * Callers look their metrics up once and keep them in fields; recording never touches the registry.
+ */
+public final class Metrics {
+    public static final String OBJECT_NAME = "metrics:type=Metrics";
+
+    private static final Map<String, LatencyHistogram> TIMERS = new ConcurrentSkipListMap<>();
+    private static final Map<String, Counter> COUNTERS = new ConcurrentSkipListMap<>();
+    private static ScheduledExecutorService dumper;
+
+    private Metrics() { }
+
+    public static LatencyHistogram timer(String name) {
+        return TIMERS.computeIfAbsent(name, key -> new LatencyHistogram());
+    }
+
+    public static Counter counter(String name) {
+        return COUNTERS.computeIfAbsent(name, key -> new Counter());
+    }
+
+    public static Map<String, LatencySnapshot> timers() {
+        Map<String, LatencySnapshot> snapshots = new TreeMap<>();
+        TIMERS.forEach((name, timer) -> snapshots.put(name, timer.snapshot()));
+        return snapshots;
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> values = new TreeMap<>();
+        COUNTERS.forEach((name, counter) -> values.put(name, counter.get()));
+        return values;
+    }
+
+    public static String dump() {
+        StringBuilder dump = new StringBuilder("--- metrics " + LocalDateTime.now() + " ---\n");
+        timers().forEach((name, snapshot) -> {
+            if (snapshot.getCount() > 0) {
+                dump.append(String.format("%-45s %s%n", name, snapshot));
+            }
+        });
+        counters().forEach((name, value) -> {
+            if (value > 0) {
+                dump.append(String.format("%-45s %d%n", name, value));
+            }
+        });
+        return dump.toString();
+    }
+
+    public static void reset() {
+        TIMERS.values().forEach(LatencyHistogram::reset);
+        COUNTERS.values().forEach(Counter::reset);
+    }
+
+    /**
+     * Makes the metrics visible to JMX clients (jconsole, VisualVM, ...); calling it again has no effect.
+     */
+    public static synchronized void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsBean(), new ObjectName(OBJECT_NAME));
+        }
+        catch (InstanceAlreadyExistsException iaee) {
+            // already registered
+        }
+        catch (JMException jme) {
+            jme.printStackTrace();
+        }
+    }
+
+    /**
+     * Prints dump() to the stream every periodSeconds, on a daemon thread, until stopPeriodicDump().
+     */
+    public static synchronized void startPeriodicDump(long periodSeconds, PrintStream out) {
+        stopPeriodicDump();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> out.print(dump()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+    }
+
+    public static synchronized void stopPeriodicDump() {
+        if (dumper != null) {
+            dumper.shutdownNow();
+            dumper = null;
+        }
+    }
+
+    private static final class MetricsBean implements MetricsMXBean {
+        @Override
+        public Map<String, Long> getCounters() { return counters(); }
+
+        @Override
+        public Map<String, LatencySnapshot> getTimers() { return timers(); }
+
+        @Override
+        public String dump() { return Metrics.dump(); }
+
+        @Override
+        public void reset() { Metrics.reset(); }
+    }
+}
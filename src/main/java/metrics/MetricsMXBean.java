@@ -0,0 +1,19 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of the application, registered by Metrics.registerMBean() as "metrics:type=Metrics".
+ */
+public interface MetricsMXBean {
+    Map<String, Long> getCounters();
+
+    Map<String, LatencySnapshot> getTimers();
+
+    /**
+     * @return every non-empty counter and timer, one per line
+     */
+    String dump();
+
+    void reset();
+}
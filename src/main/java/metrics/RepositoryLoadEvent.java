@@ -0,0 +1,33 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Loading (or reloading the appended part of) the file of a repository.
+ */
+@Name("ssvv.RepositoryLoad")
+@Label("Repository Load")
+@Category({"SSVV", "Persistence"})
+public class RepositoryLoadEvent extends Event {
+    @Label("Repository")
+    public String repository;
+
+    @Label("File")
+    public String file;
+
+    @Label("Format")
+    @Description("xml, text")
+    public String format;
+
+    @Label("Entities")
+    public long entities;
+
+    @Label("Bytes Read")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
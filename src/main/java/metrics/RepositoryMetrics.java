@@ -0,0 +1,44 @@
+package metrics;
+
+/**
+ * The metrics of one kind of repository, named "<repository>.<operation>": the latency of every mutation, of the
+ * validation of each entity, of loading (in total and parsing alone, per load) and of writing the file (in total and
+ * the flush/sync to disk alone) and of background compactions, together with the bytes and entities read and written.
+ */
+public class RepositoryMetrics {
+    public final LatencyHistogram save;
+    public final LatencyHistogram saveAll;
+    public final LatencyHistogram delete;
+    public final LatencyHistogram update;
+    public final LatencyHistogram validate;
+    public final LatencyHistogram load;
+    public final LatencyHistogram loadParse;
+    public final LatencyHistogram write;
+    public final LatencyHistogram writeSync;
+    public final LatencyHistogram append;
+    public final LatencyHistogram appendSync;
+    public final LatencyHistogram compact;
+    public final Counter bytesRead;
+    public final Counter bytesWritten;
+    public final Counter entitiesLoaded;
+    public final Counter entitiesWritten;
+
+    public RepositoryMetrics(String repository) {
+        save = Metrics.timer(repository + ".save");
+        saveAll = Metrics.timer(repository + ".saveAll");
+        delete = Metrics.timer(repository + ".delete");
+        update = Metrics.timer(repository + ".update");
+        validate = Metrics.timer(repository + ".validate");
+        load = Metrics.timer(repository + ".load");
+        loadParse = Metrics.timer(repository + ".load.parse");
+        write = Metrics.timer(repository + ".write");
+        writeSync = Metrics.timer(repository + ".write.sync");
+        append = Metrics.timer(repository + ".append");
+        appendSync = Metrics.timer(repository + ".append.sync");
+        compact = Metrics.timer(repository + ".compact");
+        bytesRead = Metrics.counter(repository + ".bytes.read");
+        bytesWritten = Metrics.counter(repository + ".bytes.written");
+        entitiesLoaded = Metrics.counter(repository + ".entities.loaded");
+        entitiesWritten = Metrics.counter(repository + ".entities.written");
+    }
+}
@@ -0,0 +1,40 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Writing to the file of a repository: a whole snapshot, or an append to the journal or the text file.
+ */
+@Name("ssvv.RepositoryWrite")
+@Label("Repository Write")
+@Category({"SSVV", "Persistence"})
+public class RepositoryWriteEvent extends Event {
+    @Label("Repository")
+    public String repository;
+
+    @Label("File")
+    public String file;
+
+    @Label("Format")
+    @Description("xml, text")
+    public String format;
+
+    @Label("Kind")
+    @Description("snapshot, journal, append")
+    public String kind;
+
+    @Label("Durability")
+    public String durability;
+
+    @Label("Entities")
+    public long entities;
+
+    @Label("Bytes Written")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
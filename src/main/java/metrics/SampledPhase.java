@@ -0,0 +1,30 @@
+package metrics;
+
+/**
+ * Times a phase of a bulk loop (parsing each entity of a load, ...) on one iteration in 64 only, so that reading the
+ * clock does not slow down the loop it measures; the total is extrapolated from the samples. Used by one thread.
+ */
+public class SampledPhase {
+    private static final int SAMPLE_MASK = 63;
+
+    private long iterations;
+    private long samples;
+    private long sampledNanos;
+
+    /**
+     * Starts an iteration.
+     * @return true if the phase should be timed in this iteration
+     */
+    public boolean sample() {
+        return (iterations++ & SAMPLE_MASK) == 0;
+    }
+
+    public void add(long nanos) {
+        samples++;
+        sampledNanos += nanos;
+    }
+
+    public long estimatedTotalNanos() {
+        return samples == 0 ? 0 : sampledNanos * iterations / samples;
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * One call of Service.saveNota, with the outcome of the late penalty.
+ */
+@Name("ssvv.SaveNota")
+@Label("Save Grade")
+@Category({"SSVV", "Grading"})
+public class SaveNotaEvent extends Event {
+    @Label("Student")
+    public String idStudent;
+
+    @Label("Homework")
+    public String idTema;
+
+    @Label("Initial Grade")
+    public double notaInitiala;
+
+    @Label("Final Grade")
+    public double notaFinala;
+
+    @Label("Submission Week")
+    public int saptamanaPredare;
+
+    @Label("Deadline")
+    public int deadline;
+
+    @Label("Weeks Late")
+    public int saptamaniIntarziere;
+
+    @Label("Penalized")
+    public boolean penalizata;
+
+    @Label("Saved")
+    public boolean salvata;
+
+    @Label("Error")
+    public String eroare;
+}
@@ -0,0 +1,31 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Writing the report file of a student, or finding that it is up to date.
+ */
+@Name("ssvv.StudentReport")
+@Label("Student Report")
+@Category({"SSVV", "Reports"})
+public class StudentReportEvent extends Event {
+    @Label("Student")
+    public String idStudent;
+
+    @Label("File")
+    public String file;
+
+    @Label("Grades")
+    public int grades;
+
+    @Label("Written")
+    public boolean written;
+
+    @Label("Bytes Written")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
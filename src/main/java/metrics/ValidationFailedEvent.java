@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * An entity rejected by the validator of a repository, or a line of a file that could not be parsed.
+ */
+@Name("ssvv.ValidationFailed")
+@Label("Validation Failed")
+@Category({"SSVV", "Validation"})
+public class ValidationFailedEvent extends Event {
+    @Label("Repository")
+    public String repository;
+
+    @Label("Entity ID")
+    public String entityId;
+
+    @Label("Message")
+    public String message;
+}
@@ -0,0 +1,565 @@
+package repository;
+
+import domain.HasID;
+import exceptions.AlreadyExistingEntityException;
+import exceptions.ValidationException;
+import validation.Validator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Stores the entities in a binary log of length-prefixed records. Every record is framed as
+ * [int length][byte type][payload][int CRC32 of type and payload]; the types are:
+ * STRING, which adds a string to the dictionary of the file, PUT, which stores an entity, and REMOVE, which removes one.
+ * Entities refer to their strings (IDs, names, feedback) by dictionary index, so a string repeated across records
+ * is written once. Mutations append records; the file is rewritten as a compact snapshot when the dead records
+ * outnumber the live entities. A torn or corrupted record at the end of the file, left by a crash, is dropped on load;
+ * a corrupted record before the end is skipped and reported, loading resumes at the next intact record, and the file
+ * is copied aside before anything rewrites it.
+ */
+public abstract class AbstractBinaryRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E> {
+    private static final byte[] MAGIC = {'S', 'S', 'V', 'B', 1};
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_PUT = 2;
+    private static final byte TYPE_REMOVE = 3;
+    private static final int MIN_RECORDS_TO_COMPACT = 1024;
+    private static final String CORRUPT_SUFFIX = ".corrupt";
+
+    protected String filename;
+    protected volatile Durability durability = Durability.FLUSH;
+
+    private Map<String, Integer> dictionary = new HashMap<>();
+    private List<String> strings = new ArrayList<>();
+    private long recordsInFile;
+    private int corruptRecords;
+    private int deferredWrites;
+    private final List<Byte> pendingTypes = new ArrayList<>();
+    private final List<E> pendingEntities = new ArrayList<>();
+
+    public AbstractBinaryRepository(Validator<E> validator, String filename) {
+        super(validator);
+        this.filename = filename;
+    }
+
+    /**
+     * Encodes the entity; the strings go through writeString, so they end up in the dictionary.
+     */
+    protected abstract void writeEntity(RecordOutput out, E entity);
+
+    protected abstract E readEntity(RecordInput in);
+
+    protected abstract void writeId(RecordOutput out, ID id);
+
+    protected abstract ID readId(RecordInput in);
+
+    public Durability getDurability() { return durability; }
+
+    public void setDurability(Durability durability) { this.durability = durability; }
+
+    /**
+     * Loads the file, which is created empty if it does not exist yet.
+     */
+    protected void loadFromBinaryFile() {
+        Path file = Paths.get(filename);
+        clearEntities();
+        dictionary.clear();
+        strings.clear();
+        recordsInFile = 0;
+        corruptRecords = 0;
+        try {
+            if (!Files.exists(file) || Files.size(file) == 0) {
+                writeToBinaryFile();
+                return;
+            }
+
+            ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+            byte[] magic = new byte[Math.min(MAGIC.length, content.remaining())];
+            content.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Fisierul " + filename + " nu este un fisier binar de entitati!");
+            }
+
+            int complete = readRecords(content);
+            if (corruptRecords > 0) {
+                Files.copy(file, Paths.get(filename + CORRUPT_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+            }
+            if (complete < content.limit()) {
+                // a crash in the middle of an append leaves a torn record at the end; drop it
+                try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+                    randomAccessFile.setLength(complete);
+                }
+            }
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Applies the records one by one and returns the length the file should keep. A bad frame with no intact frame
+     * after it is a torn tail, left by a crash in the middle of an append, and is cut off when it runs to the end of
+     * the file (or only zeros follow it). A bad frame before an intact one is skipped, whatever its length prefix says,
+     * and loading resumes at the intact frame.
+     */
+    private int readRecords(ByteBuffer content) {
+        while (content.remaining() >= Integer.BYTES) {
+            int start = content.position();
+            int end = frameEnd(content, start);
+            if (end < 0) {
+                int next = nextFrame(content, start + 1);
+                if (next < 0 && runsToTheEnd(content, start)) {
+                    return start;
+                }
+                skipCorruptRecord(start, start + Integer.BYTES < content.limit() ? content.get(start + Integer.BYTES) : 0);
+                if (next < 0) {
+                    return content.limit();
+                }
+                content.position(next);
+                continue;
+            }
+
+            ByteBuffer record = content.duplicate();
+            record.limit(end - Integer.BYTES).position(start + Integer.BYTES);
+            record = record.slice();
+            content.position(end);
+            try {
+                if (applyRecord(record)) {
+                    recordsInFile++;
+                }
+            }
+            catch(BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException ex) {
+                skipCorruptRecord(start, record.get(0));
+            }
+        }
+        return content.position();
+    }
+
+    /**
+     * @return the offset after the frame at the given offset, or -1 if the frame is incomplete or fails its checksum
+     */
+    private static int frameEnd(ByteBuffer content, int start) {
+        if (content.limit() - start < Integer.BYTES) {
+            return -1;
+        }
+        int length = content.getInt(start);
+        if (length < 1 || length > content.limit() - start - 2 * Integer.BYTES) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content.array(), start + Integer.BYTES, length);
+        int end = start + Integer.BYTES + length + Integer.BYTES;
+        return (int) crc.getValue() == content.getInt(end - Integer.BYTES) ? end : -1;
+    }
+
+    /**
+     * @return the offset of the first intact frame at or after the given offset, or -1 if there is none
+     */
+    private static int nextFrame(ByteBuffer content, int from) {
+        for (int offset = from; offset <= content.limit() - 2 * Integer.BYTES - 1; offset++) {
+            if (frameEnd(content, offset) >= 0) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if the length prefix of the bad frame reaches the end of the file, or only zeros follow it
+     */
+    private static boolean runsToTheEnd(ByteBuffer content, int start) {
+        int remaining = content.limit() - start;
+        if (remaining < Integer.BYTES || content.getInt(start) >= remaining - 2 * Integer.BYTES) {
+            return true;
+        }
+        for (int offset = start; offset < content.limit(); offset++) {
+            if (content.get(offset) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reports a record that cannot be applied. A lost string still takes its slot in the dictionary, so that the
+     * records after it keep pointing at the right strings; a record that refers to a lost string is lost as well.
+     */
+    private void skipCorruptRecord(int offset, byte type) {
+        corruptRecords++;
+        new IOException("Inregistrare corupta la pozitia " + offset + " in fisierul " + filename + "!").printStackTrace();
+        if (type == TYPE_STRING) {
+            strings.add(null);
+        }
+        else {
+            recordsInFile++;
+        }
+    }
+
+    /**
+     * @return true for the records of entities, false for the dictionary records
+     */
+    private boolean applyRecord(ByteBuffer record) {
+        byte type = record.get();
+        if (type == TYPE_STRING) {
+            String string = StandardCharsets.UTF_8.decode(record).toString();
+            dictionary.put(string, strings.size());
+            strings.add(string);
+            return false;
+        }
+        else if (type == TYPE_PUT) {
+            E entity = readEntity(new RecordInput(record, strings));
+            try {
+                validator.validate(entity);
+                putEntity(entity);
+            }
+            catch(ValidationException ve) {
+                ve.printStackTrace();
+            }
+        }
+        else if (type == TYPE_REMOVE) {
+            ID id = readId(new RecordInput(record, strings));
+            if (id == null) {
+                throw new IllegalArgumentException("Inregistrare de stergere fara ID");
+            }
+            removeEntity(id);
+        }
+        return true;
+    }
+
+    /**
+     * Rewrites the file as a snapshot of the in-memory entities, with a dictionary of only the strings still in use.
+     * The new dictionary replaces the old one only once the snapshot is committed; until then the file on disk
+     * still goes with the old one.
+     */
+    protected void writeToBinaryFile() {
+        Map<String, Integer> oldDictionary = dictionary;
+        List<String> oldStrings = strings;
+        dictionary = new HashMap<>();
+        strings = new ArrayList<>();
+        try (SnapshotFile snapshot = new SnapshotFile(Paths.get(filename), durability)) {
+            OutputStream out = snapshot.getOutputStream();
+            out.write(MAGIC);
+            RecordOutput record = new RecordOutput();
+            for (E entity : entities.values()) {
+                writeRecord(out, record, TYPE_PUT, entity);
+            }
+            snapshot.commit();
+            recordsInFile = entities.size();
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            dictionary = oldDictionary;
+            strings = oldStrings;
+        }
+    }
+
+    /**
+     * Rewrites the file without the records of deleted and replaced entities.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            writeToBinaryFile();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writeRecord(OutputStream out, RecordOutput record, byte type, E entity) throws IOException {
+        record.reset(type);
+        if (type == TYPE_REMOVE) {
+            writeId(record, entity.getID());
+        }
+        else {
+            writeEntity(record, entity);
+        }
+
+        for (String string : record.newStrings) {
+            writeFrame(out, TYPE_STRING, string.getBytes(StandardCharsets.UTF_8));
+        }
+        writeFrame(out, record.bytes, record.length);
+    }
+
+    private static void writeFrame(OutputStream out, byte type, byte[] payload) throws IOException {
+        byte[] frame = new byte[payload.length + 1];
+        frame[0] = type;
+        System.arraycopy(payload, 0, frame, 1, payload.length);
+        writeFrame(out, frame, frame.length);
+    }
+
+    private static void writeFrame(OutputStream out, byte[] bytes, int length) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        writeInt(out, length);
+        out.write(bytes, 0, length);
+        writeInt(out, (int) crc.getValue());
+    }
+
+    private static void writeInt(OutputStream out, int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private void persist(byte type, E entity) {
+        if (deferredWrites > 0) {
+            pendingTypes.add(type);
+            pendingEntities.add(entity);
+            return;
+        }
+        appendRecords(Collections.singletonList(type), Collections.singletonList(entity));
+    }
+
+    private void appendRecords(List<Byte> types, List<E> changed) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            RecordOutput record = new RecordOutput();
+            for (int i = 0; i < changed.size(); i++) {
+                writeRecord(out, record, types.get(i), changed.get(i));
+            }
+            out.flush();
+            SnapshotFile.forceAppend(channel, durability);
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            // the dictionary may now hold strings that never reached the file; start over from a snapshot
+            writeToBinaryFile();
+            return;
+        }
+
+        recordsInFile += changed.size();
+        if (recordsInFile - entities.size() > Math.max(entities.size(), MIN_RECORDS_TO_COMPACT)) {
+            writeToBinaryFile();
+        }
+    }
+
+    @Override
+    public void beginDeferredWrites() {
+        lock.writeLock().lock();
+        try {
+            deferredWrites++;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long endDeferredWrites() {
+        lock.writeLock().lock();
+        try {
+            if (--deferredWrites > 0 || pendingEntities.isEmpty()) {
+                return 0;
+            }
+
+            appendRecords(new ArrayList<>(pendingTypes), new ArrayList<>(pendingEntities));
+            pendingTypes.clear();
+            pendingEntities.clear();
+            return 0;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the content of the repository with the given entities, written as a single snapshot;
+     * used to migrate the entities of another repository.
+     */
+    public void importAll(Iterable<E> imported) {
+        lock.writeLock().lock();
+        try {
+            clearEntities();
+            for (E entity : imported) {
+                putEntity(entity);
+            }
+            writeToBinaryFile();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public E save(E entity) throws ValidationException, AlreadyExistingEntityException {
+        lock.writeLock().lock();
+        try {
+            E result = super.save(entity);
+            persist(TYPE_PUT, entity);
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public E delete(ID id) {
+        lock.writeLock().lock();
+        try {
+            E result = super.delete(id);
+            if (result != null) {
+                persist(TYPE_REMOVE, result);
+            }
+
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public E update(E newEntity) {
+        lock.writeLock().lock();
+        try {
+            E result = super.update(newEntity);
+            if (result != null) {
+                persist(TYPE_PUT, newEntity);
+            }
+
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The payload of one record under construction. Strings are written as dictionary indexes; the strings new to
+     * the dictionary are collected in newStrings and written as STRING records in front of the record.
+     */
+    protected final class RecordOutput {
+        private byte[] bytes = new byte[64];
+        private int length;
+        private final List<String> newStrings = new ArrayList<>();
+
+        private void reset(byte type) {
+            length = 0;
+            newStrings.clear();
+            writeByte(type);
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void writeByte(int value) {
+            ensureCapacity(1);
+            bytes[length++] = (byte) value;
+        }
+
+        public void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        public void writeInt(int value) {
+            writeVarInt((value << 1) ^ (value >> 31));
+        }
+
+        public void writeDouble(double value) {
+            long bits = Double.doubleToLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                writeByte((int) (bits >>> shift));
+            }
+        }
+
+        /**
+         * Writes the dictionary index of the string, plus one; 0 stands for null.
+         */
+        public void writeString(String value) {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+
+            Integer index = dictionary.get(value);
+            if (index == null) {
+                index = strings.size();
+                dictionary.put(value, index);
+                strings.add(value);
+                newStrings.add(value);
+            }
+            writeVarInt(index + 1);
+        }
+    }
+
+    protected static final class RecordInput {
+        private final ByteBuffer buffer;
+        private final List<String> strings;
+
+        private RecordInput(ByteBuffer buffer, List<String> strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        public int readVarInt() {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        public int readInt() {
+            int value = readVarInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        public double readDouble() {
+            return buffer.getDouble();
+        }
+
+        /**
+         * @return true if the record has more fields, written by a newer version of the entity
+         */
+        public boolean hasRemaining() {
+            return buffer.hasRemaining();
+        }
+
+        /**
+         * @throws IllegalArgumentException if the string was lost to a corrupted record
+         */
+        public String readString() {
+            int index = readVarInt();
+            if (index == 0) {
+                return null;
+            }
+            String string = strings.get(index - 1);
+            if (string == null) {
+                throw new IllegalArgumentException("Sirul " + index + " s-a pierdut");
+            }
+            return string;
+        }
+    }
+}
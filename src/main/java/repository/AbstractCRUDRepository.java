@@ -3,17 +3,31 @@ package repository;
 import domain.HasID;
 import exceptions.AlreadyExistingEntityException;
 import exceptions.ValidationException;
+import metrics.RepositoryMetrics;
+import metrics.ValidationFailedEvent;
 import validation.Validator;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements CRUDRepository<ID, E>{
-    Map<ID, E> entities;
+/**
+ * Readers (findOne, findAll) never block: the entities live in a concurrent map. Every mutation holds the write lock
+ * of the repository for the change itself, the secondary indexes and, in the persistent subclasses, the write to disk,
+ * so there is a single writer per repository at any time. Secondary index queries hold the read lock.
+ */
+public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements CRUDRepository<ID, E>, AutoCloseable {
+    volatile Map<ID, E> entities;
     Validator<E> validator;
+    protected final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<RepositoryListener<E>> listeners = new CopyOnWriteArrayList<>();
+    protected final RepositoryMetrics metrics = new RepositoryMetrics(getClass().getSimpleName());
+    private volatile WriteBehindFlusher writeBehind;
 
     public AbstractCRUDRepository(Validator validator) {
-        entities = new HashMap<ID, E>();
+        entities = new ConcurrentHashMap<ID, E>();
         this.validator = validator;
     }
 
@@ -32,14 +46,22 @@ public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements
 
     @Override
     public E save(E entity) throws ValidationException, AlreadyExistingEntityException {
-        validator.validate(entity);
-        var entityAlreadyExisting = entities.putIfAbsent(entity.getID(), entity);
+        validate(entity);
+        lock.writeLock().lock();
+        try {
+            var entityAlreadyExisting = entities.putIfAbsent(entity.getID(), entity);
 
-        if (entityAlreadyExisting != null) {
-            throw new AlreadyExistingEntityException("The entity is already existing!\n");
-        }
+            if (entityAlreadyExisting != null) {
+                throw new AlreadyExistingEntityException("The entity is already existing!\n");
+            }
+            added(entity);
+            mutated();
 
-        return entity;
+            return entity;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
     }
 
     @Override
@@ -47,20 +69,255 @@ public abstract class AbstractCRUDRepository<ID, E extends HasID<ID>> implements
         if (id == null) {
             throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
         }
-        else {
-            return entities.remove(id);
+        lock.writeLock().lock();
+        try {
+            E removed = entities.remove(id);
+            if (removed != null) {
+                removed(removed);
+                mutated();
+            }
+            return removed;
+        }
+        finally {
+            lock.writeLock().unlock();
         }
     }
 
     @Override
     public E update(E entity) {
         try {
-            validator.validate(entity);
-            return entities.replace(entity.getID(), entity);
+            validate(entity);
         }
         catch (ValidationException ve) {
             System.out.println("Entitatea nu este valida! \n");
             return null;
         }
+
+        lock.writeLock().lock();
+        try {
+            E replaced = entities.replace(entity.getID(), entity);
+            if (replaced != null) {
+                removed(replaced);
+                added(entity);
+                mutated();
+            }
+            return replaced;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    protected void validate(E entity) throws ValidationException {
+        long start = System.nanoTime();
+        try {
+            validator.validate(entity);
+        }
+        catch (ValidationException ve) {
+            validationFailed(entity.getID(), ve);
+            throw ve;
+        }
+        finally {
+            metrics.validate.recordSince(start);
+        }
+    }
+
+    /**
+     * Reports a rejected entity (or an unreadable line, with a null ID) to Flight Recorder.
+     */
+    protected void validationFailed(Object id, ValidationException ve) {
+        ValidationFailedEvent event = new ValidationFailedEvent();
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.entityId = String.valueOf(id);
+            event.message = ve.getMessage();
+            event.commit();
+        }
+    }
+
+    public void lockForRead() { lock.readLock().lock(); }
+
+    public void unlockRead() { lock.readLock().unlock(); }
+
+    public void lockForWrite() { lock.writeLock().lock(); }
+
+    public void unlockWrite() { lock.writeLock().unlock(); }
+
+    /**
+     * Postpones the writes to disk of the following mutations until the matching endDeferredWrites(), which persists
+     * them at once. Calls nest; the in-memory repository has nothing to postpone.
+     */
+    public void beginDeferredWrites() { }
+
+    /**
+     * @return the sequence number to pass to awaitDurable() once the locks are released, or 0 if the writes are
+     * already as durable as they get
+     */
+    public long endDeferredWrites() { return 0; }
+
+    /**
+     * Waits until the writes that returned the sequence number are forced to the disk; only Durability.GROUP_COMMIT
+     * leaves them to a committer thread. Must be called without holding the locks of the repository, or the other
+     * writers could not join the next batch.
+     */
+    public void awaitDurable(long sequence) { }
+
+    /**
+     * Switches the repository to write-behind mode: mutations only change the entities in memory, and a background
+     * thread writes them to disk, all at once, intervalMillis after the first of them or as soon as maxDirty of them
+     * are pending. A burst of mutations thus costs a single write; the price is that the last interval of changes is
+     * lost if the process dies before flush() or close(). A shutdown hook flushes on a normal exit.
+     */
+    public void enableWriteBehind(long intervalMillis, int maxDirty) {
+        if (intervalMillis < 0 || maxDirty < 1) {
+            throw new IllegalArgumentException("Intervalul si pragul de scriere trebuie sa fie pozitive! \n");
+        }
+        lock.writeLock().lock();
+        try {
+            if (writeBehind != null) {
+                throw new IllegalStateException("Scrierea amanata este deja activa! \n");
+            }
+            beginDeferredWrites();
+            writeBehind = new WriteBehindFlusher(this, intervalMillis, maxDirty);
+            writeBehind.start();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the pending mutations and returns to writing every mutation on the caller's thread.
+     */
+    public void disableWriteBehind() {
+        WriteBehindFlusher flusher;
+        long sequence;
+        lock.writeLock().lock();
+        try {
+            flusher = writeBehind;
+            if (flusher == null) {
+                return;
+            }
+            writeBehind = null;
+            sequence = endDeferredWrites();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        flusher.stop();
+        awaitDurable(sequence);
+    }
+
+    public boolean isWriteBehind() { return writeBehind != null; }
+
+    /**
+     * Writes the mutations that write-behind mode has not written yet; without write-behind there are none.
+     */
+    public void flush() {
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            WriteBehindFlusher flusher = writeBehind;
+            if (flusher != null) {
+                sequence = endDeferredWrites();
+                beginDeferredWrites();
+                flusher.flushed();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        awaitDurable(sequence);
+    }
+
+    /**
+     * Flushes the pending mutations and stops the write-behind thread.
+     */
+    @Override
+    public void close() { disableWriteBehind(); }
+
+    private void mutated() {
+        WriteBehindFlusher flusher = writeBehind;
+        if (flusher != null) {
+            flusher.dirtied();
+        }
+    }
+
+    /**
+     * Puts an entity without validation, replacing any entity with the same ID; used when replaying persisted state.
+     * The caller holds the write lock (or is still constructing the repository).
+     */
+    protected void putEntity(E entity) {
+        E replaced = entities.put(entity.getID(), entity);
+        if (replaced != null) {
+            removed(replaced);
+        }
+        added(entity);
+    }
+
+    protected void removeEntity(ID id) {
+        E removed = entities.remove(id);
+        if (removed != null) {
+            removed(removed);
+        }
+    }
+
+    protected void clearEntities() {
+        entities.clear();
+        entitiesCleared();
+        for (RepositoryListener<E> listener : listeners) {
+            listener.entitiesCleared();
+        }
+    }
+
+    /**
+     * Swaps in the entities of a full reload at once, so that readers see either the old or the new content,
+     * never an empty or half-filled repository. The caller holds the write lock.
+     */
+    protected void replaceEntities(Map<ID, E> loaded) {
+        entities = new ConcurrentHashMap<>(loaded);
+        entitiesCleared();
+        for (RepositoryListener<E> listener : listeners) {
+            listener.entitiesCleared();
+        }
+        for (E entity : loaded.values()) {
+            added(entity);
+        }
     }
+
+    /**
+     * Registers a listener for every change of the entities, including reloads from disk.
+     */
+    public void addListener(RepositoryListener<E> listener) { listeners.add(listener); }
+
+    public void removeListener(RepositoryListener<E> listener) { listeners.remove(listener); }
+
+    private void added(E entity) {
+        entityAdded(entity);
+        for (RepositoryListener<E> listener : listeners) {
+            listener.entityAdded(entity);
+        }
+    }
+
+    private void removed(E entity) {
+        entityRemoved(entity);
+        for (RepositoryListener<E> listener : listeners) {
+            listener.entityRemoved(entity);
+        }
+    }
+
+    /**
+     * Called after an entity enters the repository; subclasses override it to maintain secondary indexes.
+     */
+    protected void entityAdded(E entity) { }
+
+    /**
+     * Called after an entity leaves the repository, including the old version of an updated entity.
+     */
+    protected void entityRemoved(E entity) { }
+
+    /**
+     * Called after all entities were dropped at once, before a full reload.
+     */
+    protected void entitiesCleared() { }
 }
@@ -3,46 +3,580 @@ package repository;
 import domain.HasID;
 import exceptions.AlreadyExistingEntityException;
 import exceptions.ValidationException;
+import metrics.RepositoryLoadEvent;
+import metrics.RepositoryWriteEvent;
+import metrics.SampledPhase;
 import validation.Validator;
 
-public abstract class AbstractFileRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID,E>{
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+public abstract class AbstractFileRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID,E>
+        implements Compactable {
+    private static final int TAIL_CHECKSUM_BYTES = 4096;
+    private static final int READ_BUFFER_CHARS = 1 << 16;
+    private static final int COMPACT_BUFFER_SIZE = 64 * 1024;
+    private static final String COMPACT_SUFFIX = ".compact";
+
     protected String filename;
+    protected volatile Durability durability = Durability.FLUSH;
+
+    private long loadedSize = -1;
+    private FileTime loadedModified;
+    private long loadedTailChecksum;
+    private int deferredWrites;
+    private final List<E> pendingAppends = new ArrayList<>();
+    private boolean pendingRewrite;
+    private volatile GroupCommit groupCommit;
+    private long lastSequence;
+    private volatile int linesInFile;
+    private int fileGeneration;
+    private volatile boolean appendUpdates;
 
     public AbstractFileRepository(Validator<E> validator, String filename) {
         super(validator);
         this.filename = filename;
     }
 
-    protected abstract void loadFromFile();
-    protected abstract void writeToFile(E entity);
-    protected abstract void writeToFileAll();
+    /**
+     * Builds an entity from the '#'-separated fields of one line.
+     */
+    protected abstract E getEntityFromFields(LineTokenizer line);
+    protected abstract String getLineFromEntity(E entity);
+
+    public Durability getDurability() { return durability; }
+
+    /**
+     * Durability.GROUP_COMMIT starts the committer thread of the file; any other level stops it.
+     */
+    public void setDurability(Durability durability) {
+        lock.writeLock().lock();
+        try {
+            this.durability = durability;
+            if (durability == Durability.GROUP_COMMIT && groupCommit == null) {
+                groupCommit = new GroupCommit(Paths.get(filename), metrics.appendSync, getClass().getSimpleName(),
+                        lastSequence);
+            }
+            else if (durability != Durability.GROUP_COMMIT) {
+                stopGroupCommit();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void stopGroupCommit() {
+        if (groupCommit != null) {
+            lastSequence = groupCommit.stop();
+            groupCommit = null;
+        }
+    }
+
+    /**
+     * Also stops the committer thread; appends are then forced one by one, as with Durability.FSYNC.
+     */
+    @Override
+    public void close() {
+        super.close();
+        lock.writeLock().lock();
+        try {
+            stopGroupCommit();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        GroupCommit commit = groupCommit;
+        if (commit != null) {
+            commit.await(sequence);
+        }
+    }
+
+    /**
+     * Replaces the in-memory entities with the content of the file; when an ID appears on several lines,
+     * the last line wins.
+     */
+    protected void loadFromFile() {
+        Map<ID, E> loaded = new LinkedHashMap<>();
+        int lines = readLines(0, loaded);
+        lock.writeLock().lock();
+        try {
+            replaceEntities(loaded);
+            fileGeneration++;
+            linesInFile = lines;
+            rememberFileState();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads the file only if it was changed by someone else since it was last read or written. When the old
+     * content is still in place and the file only grew, only the appended lines are read.
+     */
+    protected void refreshFromFile() {
+        try {
+            Path path = Paths.get(filename);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attributes.size() == loadedSize && attributes.lastModifiedTime().equals(loadedModified)) {
+                return;
+            }
+
+            if (loadedSize >= 0 && attributes.size() > loadedSize && tailChecksum(path, loadedSize) == loadedTailChecksum) {
+                Map<ID, E> loaded = new LinkedHashMap<>();
+                linesInFile += readLines(loadedSize, loaded);
+                for (E entity : loaded.values()) {
+                    putEntity(entity);
+                }
+                rememberFileState();
+            }
+            else {
+                loadFromFile();
+            }
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    /**
+     * Collects the entity of every valid line from the offset on; a later line replaces an earlier one with the same ID.
+     * Bytes that are not valid in the default charset are replaced, so only the line they are on can fail validation.
+     * Parsing and validation are timed on a sample of the lines only.
+     *
+     * @return the number of lines read
+     */
+    private int readLines(long offset, Map<ID, E> loaded) {
+        long start = System.nanoTime();
+        RepositoryLoadEvent event = new RepositoryLoadEvent();
+        event.begin();
+        SampledPhase parse = new SampledPhase();
+        int lines = 0;
+        long valid = 0;
+        long bytes = 0;
+        CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+             Reader reader = Channels.newReader(channel.position(offset), decoder, -1)) {
+            LineTokenizer line = new LineTokenizer(reader, READ_BUFFER_CHARS);
+            while (true) {
+                boolean sampled = parse.sample();
+                long parseStart = sampled ? System.nanoTime() : 0;
+                if (!line.nextLine()) {
+                    break;
+                }
+                lines++;
+                E entity = null;
+                try {
+                    entity = getEntityFromFields(line);
+                    if (sampled) {
+                        parse.add(System.nanoTime() - parseStart);
+                    }
+                    long validateStart = sampled ? System.nanoTime() : 0;
+                    validator.validate(entity);
+                    if (sampled) {
+                        metrics.validate.recordSince(validateStart);
+                    }
+                    loaded.put(entity.getID(), entity);
+                    valid++;
+                } catch (ValidationException ve) {
+                    validationFailed(entity == null ? null : entity.getID(), ve);
+                    ve.printStackTrace();
+                }
+            }
+            bytes = channel.position() - offset;
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+        metrics.entitiesLoaded.add(valid);
+        metrics.bytesRead.add(bytes);
+        metrics.loadParse.record(parse.estimatedTotalNanos());
+        metrics.load.recordSince(start);
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.file = filename;
+            event.format = "text";
+            event.entities = valid;
+            event.bytes = bytes;
+            event.commit();
+        }
+        return lines;
+    }
+
+    private void rememberFileState() {
+        try {
+            Path path = Paths.get(filename);
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            loadedSize = attributes.size();
+            loadedModified = attributes.lastModifiedTime();
+            loadedTailChecksum = tailChecksum(path, loadedSize);
+        }
+        catch(IOException ioe) {
+            loadedSize = -1;
+        }
+    }
+
+    private static long tailChecksum(Path path, long end) throws IOException {
+        int length = (int) Math.min(end, TAIL_CHECKSUM_BYTES);
+        ByteBuffer tail = ByteBuffer.allocate(length);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (tail.hasRemaining() && channel.read(tail, end - length + tail.position()) >= 0) {
+                // keep reading until the whole tail is in the buffer
+            }
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(tail.flip());
+        return checksum.getValue();
+    }
+
+    /**
+     * @return the sequence number to wait for, once the write lock is released, under Durability.GROUP_COMMIT;
+     * 0 if the line is already as durable as it gets
+     */
+    protected long writeToFile(E entity) {
+        if (deferredWrites > 0) {
+            pendingAppends.add(entity);
+            return 0;
+        }
+        return appendToFile(Collections.singletonList(entity));
+    }
+
+    private long appendToFile(List<E> appended) {
+        long start = System.nanoTime();
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            long startPosition = channel.size();
+            Writer bw = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset()));
+            for (E entity : appended) {
+                bw.write(getLineFromEntity(entity) + "\n");
+            }
+            bw.flush();
+            if (groupCommit == null) {
+                long syncStart = System.nanoTime();
+                SnapshotFile.forceAppend(channel, durability);
+                metrics.appendSync.recordSince(syncStart);
+            }
+            event.bytes = channel.position() - startPosition;
+            metrics.bytesWritten.add(event.bytes);
+            metrics.entitiesWritten.add(appended.size());
+            linesInFile += appended.size();
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+        rememberFileState();
+        metrics.append.recordSince(start);
+        commitWriteEvent(event, "append", appended.size());
+        return groupCommit == null ? 0 : groupCommit.appended();
+    }
+
+    private void commitWriteEvent(RepositoryWriteEvent event, String kind, int written) {
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.file = filename;
+            event.format = "text";
+            event.kind = kind;
+            event.durability = durability.name();
+            event.entities = written;
+            event.commit();
+        }
+    }
+
+    protected void writeToFileAll() {
+        if (deferredWrites > 0) {
+            pendingRewrite = true;
+            return;
+        }
+
+        long start = System.nanoTime();
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        fileGeneration++;
+        try (SnapshotFile snapshot = new SnapshotFile(Paths.get(filename), durability)) {
+            Writer bw = new BufferedWriter(new OutputStreamWriter(snapshot.getOutputStream(), Charset.defaultCharset()));
+            for (E entity : entities.values()) {
+                bw.write(getLineFromEntity(entity) + "\n");
+            }
+            bw.flush();
+            long syncStart = System.nanoTime();
+            snapshot.commit();
+            metrics.writeSync.recordSince(syncStart);
+            metrics.bytesWritten.add(snapshot.getLength());
+            metrics.entitiesWritten.add(entities.size());
+            event.bytes = snapshot.getLength();
+            linesInFile = entities.size();
+            if (groupCommit != null) {
+                groupCommit.covered();
+            }
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+        rememberFileState();
+        metrics.write.recordSince(start);
+        commitWriteEvent(event, "snapshot", entities.size());
+    }
+
+    /**
+     * @return the lines of the file that were superseded by a later line with the same ID, or that are not valid
+     */
+    @Override
+    public long getLogRecords() { return Math.max(0, linesInFile - entities.size()); }
+
+    @Override
+    public int getLiveEntities() { return entities.size(); }
+
+    /**
+     * While a CompactionScheduler looks after the file, update() appends the new line, which replaces the old one
+     * when the file is read, instead of rewriting the whole file.
+     */
+    @Override
+    public void setCompactedInBackground(boolean compacted) { appendUpdates = compacted; }
+
+    /**
+     * Copies the entities and the length of the file under the write lock, writes them as a new file without any lock,
+     * and, under the write lock again, appends to it whatever was appended to the file meanwhile and renames it over
+     * the file. The new file is dropped if the file was rewritten or changed by someone else meanwhile.
+     */
+    @Override
+    public synchronized boolean compact(long maxBytesPerSecond) {
+        long start = System.nanoTime();
+        Path path = Paths.get(filename);
+        Path compacted = Paths.get(filename + COMPACT_SUFFIX);
+        List<E> copy;
+        long copiedLength;
+        int copiedLines;
+        int generation;
+
+        lock.writeLock().lock();
+        try {
+            if (getLogRecords() == 0 || loadedSize < 0) {
+                return false;
+            }
+            copy = new ArrayList<>(entities.values());
+            copiedLength = loadedSize;
+            copiedLines = linesInFile;
+            generation = fileGeneration;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        try {
+            try (FileChannel channel = FileChannel.open(compacted,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                Writer bw = new BufferedWriter(new OutputStreamWriter(new ThrottledOutputStream(
+                        Channels.newOutputStream(channel), maxBytesPerSecond), Charset.defaultCharset()), COMPACT_BUFFER_SIZE);
+                for (E entity : copy) {
+                    bw.write(getLineFromEntity(entity) + "\n");
+                }
+                bw.flush();
+            }
+
+            lock.writeLock().lock();
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (generation != fileGeneration || attributes.size() != loadedSize
+                        || !attributes.lastModifiedTime().equals(loadedModified)) {
+                    Files.deleteIfExists(compacted);
+                    return false;
+                }
+                // the lines appended while the copy was written go after it, before the copy replaces the file
+                try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                     FileChannel live = FileChannel.open(path, StandardOpenOption.READ)) {
+                    for (long position = copiedLength; position < loadedSize; ) {
+                        position += live.transferTo(position, loadedSize - position, channel);
+                    }
+                    if (durability.forced()) {
+                        channel.force(true);
+                    }
+                    event.bytes = channel.size();
+                }
+                SnapshotFile.replace(compacted, path, durability);
+
+                linesInFile = copy.size() + linesInFile - copiedLines;
+                rememberFileState();
+                metrics.bytesWritten.add(event.bytes);
+                metrics.entitiesWritten.add(copy.size());
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            try {
+                Files.deleteIfExists(compacted);
+            }
+            catch(IOException e) {
+                e.printStackTrace();
+            }
+            return false;
+        }
+        finally {
+            metrics.compact.recordSince(start);
+        }
+        commitWriteEvent(event, "compaction", copy.size());
+        return true;
+    }
+
+    @Override
+    public void beginDeferredWrites() {
+        lock.writeLock().lock();
+        try {
+            deferredWrites++;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
 
+    @Override
+    public long endDeferredWrites() {
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            if (--deferredWrites > 0) {
+                return 0;
+            }
+
+            if (pendingRewrite) {
+                writeToFileAll();
+            }
+            else if (!pendingAppends.isEmpty()) {
+                sequence = appendToFile(new ArrayList<>(pendingAppends));
+            }
+            pendingRewrite = false;
+            pendingAppends.clear();
+            return sequence;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reloads the file first if someone else changed it, unless mutations are still waiting to be written: reloading
+     * would drop them. The check only takes the read lock; the write lock is taken when there is something to reload,
+     * and not at all by a thread that already holds the read lock, since it cannot be upgraded.
+     */
     @Override
     public Iterable<E> findAll() {
-        loadFromFile();
+        if (changedOnDisk() && lock.getReadHoldCount() == 0) {
+            lock.writeLock().lock();
+            try {
+                if (!pendingRewrite && pendingAppends.isEmpty()) {
+                    refreshFromFile();
+                }
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
         return super.findAll();
     }
 
+    private boolean changedOnDisk() {
+        lock.readLock().lock();
+        try {
+            if (pendingRewrite || !pendingAppends.isEmpty()) {
+                return false;
+            }
+            BasicFileAttributes attributes = Files.readAttributes(Paths.get(filename), BasicFileAttributes.class);
+            return attributes.size() != loadedSize || !attributes.lastModifiedTime().equals(loadedModified);
+        }
+        catch(IOException ioe) {
+            return false;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
     @Override
     public E save(E entity) throws ValidationException, AlreadyExistingEntityException {
-        E result = super.save(entity);
-        writeToFile(entity);
-        return result;
+        long start = System.nanoTime();
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            E result = super.save(entity);
+            sequence = writeToFile(entity);
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.save.recordSince(start);
+        }
     }
 
     @Override
     public E delete(ID id) {
-        E result = super.delete(id);
-        writeToFileAll();
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            E result = super.delete(id);
+            writeToFileAll();
 
-        return result;
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            metrics.delete.recordSince(start);
+        }
     }
 
     @Override
     public E update(E newEntity) {
-        E result = super.update(newEntity);
-        writeToFileAll();
+        long start = System.nanoTime();
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            E result = super.update(newEntity);
+            if (!appendUpdates) {
+                writeToFileAll();
+            }
+            else if (result != null) {
+                sequence = writeToFile(newEntity);
+            }
 
-        return result;
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.update.recordSince(start);
+        }
     }
 }
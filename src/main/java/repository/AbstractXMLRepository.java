@@ -2,109 +2,874 @@ package repository;
 
 import domain.HasID;
 import exceptions.AlreadyExistingEntityException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 import exceptions.ValidationException;
+import metrics.RepositoryLoadEvent;
+import metrics.RepositoryWriteEvent;
+import metrics.SampledPhase;
 import validation.Validator;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.FilterWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.SequenceInputStream;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public abstract class AbstractXMLRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E>
+        implements Compactable {
+    private static final String ESCAPE_CHARACTERS = "escapeCharacters";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String OLD_JOURNAL_SUFFIX = ".old";
+    private static final String COMPACT_SUFFIX = ".compact";
+    private static final int COMPACT_BUFFER_SIZE = 64 * 1024;
+    private static final String OP_SAVE = "save";
+    private static final String OP_UPDATE = "update";
+    private static final String OP_DELETE = "delete";
+    private static final String ROOT_TAG = "Entitati";
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+    private static final String SNAPSHOT_ENTITY_INDENT = "\n    ";
+    private static final String SNAPSHOT_CHILD_INDENT = "\n        ";
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = createOutputFactory();
 
-public abstract class AbstractXMLRepository<ID, E extends HasID<ID>> extends AbstractCRUDRepository<ID, E> {
     protected String XMLfilename;
+    protected volatile Durability durability = Durability.FLUSH;
+
+    private volatile boolean journaled;
+    private int checkpointInterval;
+    private volatile int journalRecords;
+    private int snapshotGeneration;
+    private final ThreadLocal<EntityOutput> entityOutput = new ThreadLocal<>();
+    private int deferredWrites;
+    private final List<String> pendingOperations = new ArrayList<>();
+    private final List<E> pendingEntities = new ArrayList<>();
+    private volatile GroupCommit groupCommit;
+    private long lastSequence;
 
     public AbstractXMLRepository(Validator<E> validator, String XMLfilename) {
         super(validator);
         this.XMLfilename = XMLfilename;
     }
 
-    protected abstract E getEntityFromNode(Element node);
-    protected abstract Element getElementFromEntity(E entity, Document XMLdocument);
+    /**
+     * Writes one entity: its start tag and attributes through writeStartEntity, its children through writeElement,
+     * and finally writeEndEntity.
+     */
+    protected abstract void writeEntity(XMLStreamWriter writer, E entity) throws XMLStreamException;
 
-    protected void loadFromXmlFile() {
+    /**
+     * Decodes one entity from the reader, which is positioned on the entity's start tag;
+     * the reader must be left on the matching end tag.
+     */
+    protected abstract E getEntityFromReader(XMLStreamReader reader) throws XMLStreamException;
+
+    /**
+     * Switches the repository to journal mode: every mutation appends one record to the journal file
+     * next to the XML snapshot, and the snapshot itself is rewritten only once checkpointInterval
+     * records have accumulated (or when checkpoint() is called).
+     */
+    public void enableJournal(int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Intervalul de checkpoint trebuie sa fie pozitiv! \n");
+        }
+        lock.writeLock().lock();
+        try {
+            this.checkpointInterval = checkpointInterval;
+            this.journaled = true;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void disableJournal() {
+        lock.writeLock().lock();
+        try {
+            journaled = false;
+            checkpoint();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isJournaled() { return journaled; }
+
+    public Durability getDurability() { return durability; }
+
+    /**
+     * Durability.GROUP_COMMIT starts the committer thread of the journal; any other level stops it.
+     */
+    public void setDurability(Durability durability) {
+        lock.writeLock().lock();
+        try {
+            this.durability = durability;
+            if (durability == Durability.GROUP_COMMIT && groupCommit == null) {
+                groupCommit = new GroupCommit(Paths.get(getJournalFilename()), metrics.appendSync, getClass().getSimpleName(),
+                        lastSequence);
+            }
+            else if (durability != Durability.GROUP_COMMIT) {
+                stopGroupCommit();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void stopGroupCommit() {
+        if (groupCommit != null) {
+            lastSequence = groupCommit.stop();
+            groupCommit = null;
+        }
+    }
+
+    /**
+     * Also stops the committer thread; appends are then forced one by one, as with Durability.FSYNC.
+     */
+    @Override
+    public void close() {
+        super.close();
+        lock.writeLock().lock();
         try {
-            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(XMLfilename);
-            Element root = XMLdocument.getDocumentElement();
-            NodeList list = root.getChildNodes();
+            stopGroupCommit();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long sequence) {
+        GroupCommit commit = groupCommit;
+        if (commit != null) {
+            commit.await(sequence);
+        }
+    }
+
+    /**
+     * Rewrites the XML snapshot from the in-memory entities and discards the journal.
+     */
+    public void checkpoint() {
+        lock.writeLock().lock();
+        try {
+            writeToXmlFile();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
 
-            for(int i = 0; i < list.getLength(); i++) {
-                Node node = list.item(i);
-                if (node.getNodeType() == Element.ELEMENT_NODE) {
+    private static XMLOutputFactory createOutputFactory() {
+        XMLOutputFactory factory = XMLOutputFactory.newInstance();
+        // text and attributes are escaped by escape(), the same way the DOM transformer used to do it
+        factory.setProperty(ESCAPE_CHARACTERS, false);
+        return factory;
+    }
+
+    protected String getJournalFilename() { return XMLfilename + JOURNAL_SUFFIX; }
+
+    /**
+     * The journal set aside by a background compaction until the compacted snapshot replaces the XML file.
+     */
+    protected String getOldJournalFilename() { return getJournalFilename() + OLD_JOURNAL_SUFFIX; }
+
+    protected void loadFromXmlFile() {
+        long start = System.nanoTime();
+        RepositoryLoadEvent event = new RepositoryLoadEvent();
+        event.begin();
+        SampledPhase parse = new SampledPhase();
+        long loaded = 0;
+        long bytes = 0;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(XMLfilename))) {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
                     try {
-                        super.save(getEntityFromNode((Element)node));
+                        boolean sampled = parse.sample();
+                        long parseStart = sampled ? System.nanoTime() : 0;
+                        E entity = getEntityFromReader(reader);
+                        if (sampled) {
+                            parse.add(System.nanoTime() - parseStart);
+                        }
+                        super.save(entity);
+                        loaded++;
                     }
                     catch(ValidationException ve) {
                         ve.printStackTrace();
                     }
                 }
             }
+            finally {
+                reader.close();
+            }
+            bytes = Files.size(Paths.get(XMLfilename));
         }
-        catch(ParserConfigurationException pce) {
-            pce.printStackTrace();
-        }
-        catch(SAXException s) {
-            s.printStackTrace();
+        catch(XMLStreamException xse) {
+            xse.printStackTrace();
         }
         catch(IOException i) {
             i.printStackTrace();
         }
+
+        bytes += replayJournal(Paths.get(getOldJournalFilename())) + replayJournal(Paths.get(getJournalFilename()));
+        metrics.entitiesLoaded.add(loaded);
+        metrics.bytesRead.add(bytes);
+        metrics.loadParse.record(parse.estimatedTotalNanos());
+        metrics.load.recordSince(start);
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.file = XMLfilename;
+            event.format = "xml";
+            event.entities = entities.size();
+            event.bytes = bytes;
+            event.commit();
+        }
     }
 
     protected void writeToXmlFile() {
+        long start = System.nanoTime();
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        snapshotGeneration++;
+        try (SnapshotFile snapshot = new SnapshotFile(Paths.get(XMLfilename), durability)) {
+            writeSnapshot(snapshot.getOutputStream(), entities.values());
+            long syncStart = System.nanoTime();
+            snapshot.commit();
+            metrics.writeSync.recordSince(syncStart);
+            metrics.bytesWritten.add(snapshot.getLength());
+            metrics.entitiesWritten.add(entities.size());
+            event.bytes = snapshot.getLength();
+
+            discardJournal();
+            if (groupCommit != null) {
+                groupCommit.covered();
+            }
+        }
+        catch(XMLStreamException xse) {
+            xse.printStackTrace();
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+        metrics.write.recordSince(start);
+        commitWriteEvent(event, XMLfilename, "snapshot", entities.size());
+    }
+
+    private void writeSnapshot(OutputStream out, Collection<E> written) throws IOException, XMLStreamException {
+        OutputStreamWriter encoder = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        EntityOutput output = new EntityOutput(encoder, SNAPSHOT_CHILD_INDENT);
+        output.write(XML_DECLARATION);
+        XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(output);
+        entityOutput.set(output);
+
+        if (written.isEmpty()) {
+            writer.writeEmptyElement(ROOT_TAG);
+        }
+        else {
+            writer.writeStartElement(ROOT_TAG);
+            for (E entity : written) {
+                writer.writeCharacters(SNAPSHOT_ENTITY_INDENT);
+                writeEntity(writer, entity);
+            }
+            writer.writeCharacters("\n");
+            writer.writeEndElement();
+        }
+        writer.writeCharacters("\n");
+        writer.writeEndDocument();
+        writer.flush();
+        writer.close();
+        encoder.flush();
+        entityOutput.remove();
+    }
+
+    @Override
+    public long getLogRecords() { return journalRecords; }
+
+    @Override
+    public int getLiveEntities() { return entities.size(); }
+
+    /**
+     * Under the write lock, sets the journal aside as the old journal (new records go to a fresh journal) and copies
+     * the entities; then writes the snapshot of the copy without any lock, and finally, under the write lock again,
+     * renames it over the XML file and deletes the old journal. A crash at any point leaves the snapshot, the old
+     * journal and the journal replaying to the same entities, in this order. The snapshot is dropped if the XML file
+     * was rewritten meanwhile.
+     */
+    @Override
+    public synchronized boolean compact(long maxBytesPerSecond) {
+        long start = System.nanoTime();
+        Path journal = Paths.get(getJournalFilename());
+        Path oldJournal = Paths.get(getOldJournalFilename());
+        Path compacted = Paths.get(XMLfilename + COMPACT_SUFFIX);
+        List<E> copy;
+        int generation;
+        int folded;
+
+        lock.writeLock().lock();
         try {
-            Document XMLdocument = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
-            Element root = XMLdocument.createElement("Entitati");
-            XMLdocument.appendChild(root);
+            if (!journaled || journalRecords == 0) {
+                return false;
+            }
+            rotateJournal(journal, oldJournal);
+            copy = new ArrayList<>(entities.values());
+            generation = snapshotGeneration;
+            folded = journalRecords;
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            return false;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
 
-            entities.values().forEach(entity -> root.appendChild(getElementFromEntity(entity, XMLdocument)));
-            Transformer XMLtransformer = TransformerFactory.newInstance().newTransformer();
-            XMLtransformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            XMLtransformer.transform(new DOMSource(XMLdocument), new StreamResult(XMLfilename));
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(compacted,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            OutputStream out = new BufferedOutputStream(
+                    new ThrottledOutputStream(Channels.newOutputStream(channel), maxBytesPerSecond), COMPACT_BUFFER_SIZE);
+            writeSnapshot(out, copy);
+            out.flush();
+            if (durability.forced()) {
+                channel.force(true);
+            }
+            event.bytes = channel.position();
+        }
+        catch(XMLStreamException | IOException e) {
+            e.printStackTrace();
+            deleteQuietly(compacted);
+            return false;
         }
-        catch(ParserConfigurationException pce) {
-            pce.printStackTrace();
+
+        lock.writeLock().lock();
+        try {
+            if (generation != snapshotGeneration) {
+                deleteQuietly(compacted);
+                return false;
+            }
+            SnapshotFile.replace(compacted, Paths.get(XMLfilename), durability);
+            Files.deleteIfExists(oldJournal);
+            journalRecords -= folded;
+            metrics.bytesWritten.add(event.bytes);
+            metrics.entitiesWritten.add(copy.size());
         }
-        catch(TransformerConfigurationException tce) {
-            tce.printStackTrace();
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            deleteQuietly(compacted);
+            return false;
         }
-        catch(TransformerException te) {
-            te.printStackTrace();
+        finally {
+            lock.writeLock().unlock();
+            metrics.compact.recordSince(start);
         }
+        commitWriteEvent(event, XMLfilename, "compaction", copy.size());
+        return true;
     }
 
-    protected Element createElement(Document XMLdocument, String tag, String value) {
-        Element element = XMLdocument.createElement(tag);
-        element.setTextContent(value);
-        return element;
+    /**
+     * Moves the journal to the old journal, or appends it to the old journal left by a compaction that failed.
+     * The records of the journal are forced first, since the committer of GROUP_COMMIT only forces the new journal.
+     */
+    private void rotateJournal(Path journal, Path oldJournal) throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        if (durability.forced()) {
+            try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+                channel.force(false);
+            }
+        }
+        if (Files.exists(oldJournal)) {
+            try (FileChannel target = FileChannel.open(oldJournal, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                 FileChannel source = FileChannel.open(journal, StandardOpenOption.READ)) {
+                long size = source.size();
+                for (long position = 0; position < size; ) {
+                    position += source.transferTo(position, size - position, target);
+                }
+                SnapshotFile.forceAppend(target, durability);
+            }
+            Files.delete(journal);
+        }
+        else {
+            Files.move(journal, oldJournal, StandardCopyOption.ATOMIC_MOVE);
+        }
+        if (groupCommit != null) {
+            groupCommit.covered();
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+        }
+    }
+
+    private void commitWriteEvent(RepositoryWriteEvent event, String file, String kind, int written) {
+        if (event.shouldCommit()) {
+            event.repository = getClass().getSimpleName();
+            event.file = file;
+            event.format = "xml";
+            event.kind = kind;
+            event.durability = durability.name();
+            event.entities = written;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes a child element of an entity; null and empty values become an empty element.
+     */
+    protected void writeElement(XMLStreamWriter writer, String tag, String value) throws XMLStreamException {
+        writer.writeCharacters(entityOutput.get().childIndent);
+        if (value == null || value.isEmpty()) {
+            writer.writeEmptyElement(tag);
+        }
+        else {
+            writer.writeStartElement(tag);
+            writer.writeCharacters(escape(value, false));
+            writer.writeEndElement();
+        }
+    }
+
+    /**
+     * Opens the element of an entity, with its attributes given as name, value pairs. The start tag is written
+     * past the XMLStreamWriter, which leaves tabs and line breaks in attribute values unescaped.
+     */
+    protected void writeStartEntity(XMLStreamWriter writer, String tag, String... attributes) throws XMLStreamException {
+        EntityOutput output = entityOutput.get();
+        writer.writeCharacters("");
+        writer.flush();
+        output.tag = tag;
+        try {
+            output.write('<');
+            output.write(tag);
+            for (int i = 0; i < attributes.length; i += 2) {
+                output.write(' ');
+                output.write(attributes[i]);
+                output.write("=\"");
+                output.write(escape(attributes[i + 1], true));
+                output.write('"');
+            }
+            output.write('>');
+        }
+        catch(IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+    }
+
+    /**
+     * Closes the element opened by writeStartEntity, after its last child.
+     */
+    protected void writeEndEntity(XMLStreamWriter writer) throws XMLStreamException {
+        EntityOutput output = entityOutput.get();
+        if (!output.childIndent.isEmpty()) {
+            writer.writeCharacters(SNAPSHOT_ENTITY_INDENT);
+        }
+        writer.flush();
+        try {
+            output.write("</");
+            output.write(output.tag);
+            output.write('>');
+        }
+        catch(IOException ioe) {
+            throw new XMLStreamException(ioe);
+        }
+    }
+
+    private long persist(String operation, E entity) {
+        return persist(operation, Collections.singletonList(entity));
+    }
+
+    /**
+     * @return the sequence number to wait for, once the write lock is released, under Durability.GROUP_COMMIT;
+     * 0 if the change is already as durable as it gets
+     */
+    private long persist(String operation, List<E> changed) {
+        if (deferredWrites > 0) {
+            for (E entity : changed) {
+                pendingOperations.add(operation);
+                pendingEntities.add(entity);
+            }
+            return 0;
+        }
+
+        if (journaled) {
+            return appendToJournal(Collections.nCopies(changed.size(), operation), changed);
+        }
+        writeToXmlFile();
+        return 0;
+    }
+
+    @Override
+    public void beginDeferredWrites() {
+        lock.writeLock().lock();
+        try {
+            deferredWrites++;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public long endDeferredWrites() {
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            if (--deferredWrites > 0 || pendingEntities.isEmpty()) {
+                return 0;
+            }
+
+            if (journaled) {
+                sequence = appendToJournal(new ArrayList<>(pendingOperations), new ArrayList<>(pendingEntities));
+            }
+            else {
+                writeToXmlFile();
+            }
+            pendingOperations.clear();
+            pendingEntities.clear();
+            return sequence;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private long appendToJournal(List<String> operations, List<E> changed) {
+        long start = System.nanoTime();
+        RepositoryWriteEvent event = new RepositoryWriteEvent();
+        event.begin();
+        try (FileChannel channel = FileChannel.open(Paths.get(getJournalFilename()),
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            long startPosition = channel.size();
+            OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel));
+            OutputStreamWriter encoder = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            EntityOutput output = new EntityOutput(encoder, "");
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(output);
+            entityOutput.set(output);
+
+            for (int i = 0; i < changed.size(); i++) {
+                writer.writeStartElement(operations.get(i));
+                writeEntity(writer, changed.get(i));
+                writer.writeEndElement();
+                writer.writeCharacters("\n");
+            }
+            writer.flush();
+            writer.close();
+            encoder.flush();
+            out.flush();
+            if (groupCommit == null) {
+                long syncStart = System.nanoTime();
+                SnapshotFile.forceAppend(channel, durability);
+                metrics.appendSync.recordSince(syncStart);
+            }
+            event.bytes = channel.position() - startPosition;
+            metrics.bytesWritten.add(event.bytes);
+            metrics.entitiesWritten.add(changed.size());
+        }
+        catch(XMLStreamException xse) {
+            xse.printStackTrace();
+            return 0;
+        }
+        catch(IOException ioe) {
+            ioe.printStackTrace();
+            return 0;
+        }
+        finally {
+            entityOutput.remove();
+            metrics.append.recordSince(start);
+            commitWriteEvent(event, getJournalFilename(), "journal", changed.size());
+        }
+
+        long sequence = groupCommit == null ? 0 : groupCommit.appended();
+        journalRecords += changed.size();
+        if (journalRecords >= checkpointInterval) {
+            checkpoint();
+        }
+        return sequence;
+    }
+
+    /**
+     * @return the number of bytes read from the journal
+     */
+    private long replayJournal(Path journal) {
+        if (!Files.exists(journal)) {
+            return 0;
+        }
+        long bytes = 0;
+
+        try {
+            byte[] content = Files.readAllBytes(journal);
+            bytes = content.length;
+            int complete = endOfLastCompleteRecord(content);
+            if (complete < content.length) {
+                // a crash in the middle of an append leaves a torn record at the end; drop it
+                try (RandomAccessFile file = new RandomAccessFile(journal.toFile(), "rw")) {
+                    file.setLength(complete);
+                }
+            }
+
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new SequenceInputStream(
+                    new SequenceInputStream(
+                            new ByteArrayInputStream("<Journal>".getBytes(StandardCharsets.UTF_8)),
+                            new ByteArrayInputStream(content, 0, complete)),
+                    new ByteArrayInputStream("</Journal>".getBytes(StandardCharsets.UTF_8))), "UTF-8");
+            try {
+                reader.nextTag();
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    String operation = reader.getLocalName();
+                    reader.nextTag();
+                    applyJournalRecord(operation, getEntityFromReader(reader));
+                    reader.nextTag();
+                    journalRecords++;
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch(XMLStreamException xse) {
+            xse.printStackTrace();
+        }
+        catch(IOException i) {
+            i.printStackTrace();
+        }
+        return bytes;
+    }
+
+    private void applyJournalRecord(String operation, E entity) {
+        if (OP_DELETE.equals(operation)) {
+            removeEntity(entity.getID());
+        }
+        else {
+            putEntity(entity);
+        }
+    }
+
+    private void discardJournal() throws IOException {
+        Files.deleteIfExists(Paths.get(getJournalFilename()));
+        Files.deleteIfExists(Paths.get(getOldJournalFilename()));
+        journalRecords = 0;
+    }
+
+    /**
+     * Escapes a value the way the DOM serializer did: attribute values also get their quotes,
+     * tabs and line breaks escaped, since the parser would otherwise normalize them to spaces.
+     */
+    private static String escape(String value, boolean attribute) {
+        StringBuilder escaped = null;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement;
+            switch (value.charAt(i)) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '\r': replacement = "&#13;"; break;
+                case '"': replacement = attribute ? "&quot;" : null; break;
+                case '\t': replacement = attribute ? "&#9;" : null; break;
+                case '\n': replacement = attribute ? "&#10;" : null; break;
+                default: replacement = null;
+            }
+            if (replacement != null && escaped == null) {
+                escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+            }
+            if (escaped != null) {
+                if (replacement != null) {
+                    escaped.append(replacement);
+                }
+                else {
+                    escaped.append(value.charAt(i));
+                }
+            }
+        }
+        return escaped == null ? value : escaped.toString();
+    }
+
+    /**
+     * The text output under the XMLStreamWriter. Its flush() only hands the writer's buffer over, so that
+     * writeStartEntity can write in between without pushing every entity down to the file.
+     */
+    private static final class EntityOutput extends FilterWriter {
+        private final String childIndent;
+        private String tag;
+
+        EntityOutput(Writer out, String childIndent) {
+            super(out);
+            this.childIndent = childIndent;
+        }
+
+        @Override
+        public void flush() { }
+
+        @Override
+        public void close() { }
+    }
+
+    /**
+     * Skips the element the reader is positioned on, leaving the reader on its end tag.
+     */
+    protected static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            }
+            else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static int endOfLastCompleteRecord(byte[] content) {
+        int end = 0;
+        for (String operation : new String[] {OP_SAVE, OP_UPDATE, OP_DELETE}) {
+            byte[] closingTag = ("</" + operation + ">").getBytes(StandardCharsets.US_ASCII);
+            end = Math.max(end, lastIndexOf(content, closingTag) + closingTag.length);
+        }
+        return end;
+    }
+
+    private static int lastIndexOf(byte[] content, byte[] pattern) {
+        for (int i = content.length - pattern.length; i >= 0; i--) {
+            int j = 0;
+            while (j < pattern.length && content[i + j] == pattern[j]) {
+                j++;
+            }
+            if (j == pattern.length) {
+                return i;
+            }
+        }
+        return -pattern.length;
+    }
+
+    /**
+     * Saves every valid entity of the batch and persists them with a single write.
+     * @return one element per entity of the batch, in the same order: null if the entity was saved, otherwise the
+     * ValidationException or AlreadyExistingEntityException that kept it out
+     */
+    public List<RuntimeException> saveAll(List<E> batch) {
+        long start = System.nanoTime();
+        List<RuntimeException> results = new ArrayList<>(batch.size());
+        List<E> saved = new ArrayList<>(batch.size());
+        long sequence = 0;
+
+        lock.writeLock().lock();
+        try {
+            for (E entity : batch) {
+                try {
+                    super.save(entity);
+                    saved.add(entity);
+                    results.add(null);
+                }
+                catch(ValidationException | AlreadyExistingEntityException ex) {
+                    results.add(ex);
+                }
+            }
+
+            if (!saved.isEmpty()) {
+                sequence = persist(OP_SAVE, saved);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.saveAll.recordSince(start);
+        }
+        return results;
     }
 
     @Override
     public E save(E entity) throws ValidationException, AlreadyExistingEntityException {
-        E result = super.save(entity);
-        writeToXmlFile();
-        return result;
+        long start = System.nanoTime();
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            E result = super.save(entity);
+            sequence = persist(OP_SAVE, entity);
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.save.recordSince(start);
+        }
     }
 
     @Override
     public E delete(ID id) {
-        E result = super.delete(id);
-        writeToXmlFile();
+        long start = System.nanoTime();
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            E result = super.delete(id);
+            if (result != null) {
+                sequence = persist(OP_DELETE, result);
+            }
 
-        return result;
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.delete.recordSince(start);
+        }
     }
 
     @Override
     public E update(E newEntity) {
-        E result = super.update(newEntity);
-        writeToXmlFile();
+        long start = System.nanoTime();
+        long sequence = 0;
+        lock.writeLock().lock();
+        try {
+            E result = super.update(newEntity);
+            if (result != null) {
+                sequence = persist(OP_UPDATE, newEntity);
+            }
 
-        return result;
+            return result;
+        }
+        finally {
+            lock.writeLock().unlock();
+            awaitDurable(sequence);
+            metrics.update.recordSince(start);
+        }
     }
 }
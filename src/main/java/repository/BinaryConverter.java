@@ -0,0 +1,46 @@
+package repository;
+
+import domain.HasID;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Migrates studenti.xml, teme.xml and note.xml (with their journals) to studenti.bin, teme.bin and note.bin
+ * in the same directory; the XML files are left untouched.
+ * Usage: BinaryConverter [directory]
+ */
+public class BinaryConverter {
+
+    public static void convert(Path directory) {
+        convert(new StudentXMLRepository(new StudentValidator(), file(directory, "studenti.xml")),
+                new StudentBinaryRepository(new StudentValidator(), file(directory, "studenti.bin")));
+        convert(new TemaXMLRepository(new TemaValidator(), file(directory, "teme.xml")),
+                new TemaBinaryRepository(new TemaValidator(), file(directory, "teme.bin")));
+        convert(new NotaXMLRepository(new NotaValidator(), file(directory, "note.xml")),
+                new NotaBinaryRepository(new NotaValidator(), file(directory, "note.bin")));
+    }
+
+    private static <ID, E extends HasID<ID>> void convert(AbstractXMLRepository<ID, E> source,
+                                                          AbstractBinaryRepository<ID, E> target) {
+        target.importAll(source.findAll());
+        System.out.println(source.XMLfilename + " -> " + target.filename + ": " + target.entities.size() + " entitati");
+    }
+
+    private static String file(Path directory, String name) {
+        return directory.resolve(name).toString();
+    }
+
+    public static void main(String[] args) {
+        Path directory = Paths.get(args.length > 0 ? args[0] : ".");
+        if (!Files.isDirectory(directory)) {
+            System.out.println("Directorul " + directory + " nu exista!");
+            return;
+        }
+        convert(directory);
+    }
+}
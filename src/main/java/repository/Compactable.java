@@ -0,0 +1,28 @@
+package repository;
+
+/**
+ * A repository whose file holds, next to the live entities, a log of records that a new snapshot would fold in or drop:
+ * the journal of the XML repositories, the superseded lines of the text repositories.
+ */
+public interface Compactable {
+    /**
+     * @return the records of the log that a compaction would fold into the snapshot or drop
+     */
+    long getLogRecords();
+
+    int getLiveEntities();
+
+    /**
+     * Writes a compact snapshot of the current entities next to the file, at most maxBytesPerSecond (0 for no limit),
+     * and swaps it in atomically. Readers and writers are only held up while the entities are copied and while the
+     * snapshot is swapped in, not while it is written.
+     * @return false if there was nothing to compact, or if the snapshot was dropped because the file was rewritten
+     * in the meantime
+     */
+    boolean compact(long maxBytesPerSecond);
+
+    /**
+     * Called when a CompactionScheduler starts or stops compacting the repository in the background.
+     */
+    default void setCompactedInBackground(boolean compacted) { }
+}
@@ -0,0 +1,95 @@
+package repository;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compacts repositories in the background. Every check it looks at the log of each registered repository, and once
+ * the log holds at least minLogRecords records and at least maxLogRatio times as many records as there are live
+ * entities, it rewrites a compact snapshot on its own thread, one repository at a time and at most maxBytesPerSecond,
+ * so that compaction never competes with the grading load for the disk.
+ */
+public class CompactionScheduler implements AutoCloseable {
+    private final double maxLogRatio;
+    private final long minLogRecords;
+    private final long maxBytesPerSecond;
+    private final List<Compactable> repositories = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService executor;
+
+    /**
+     * @param maxBytesPerSecond the write rate of a compaction, 0 for no limit
+     */
+    public CompactionScheduler(double maxLogRatio, long minLogRecords, long maxBytesPerSecond) {
+        if (maxLogRatio < 0 || minLogRecords < 1 || maxBytesPerSecond < 0) {
+            throw new IllegalArgumentException("Pragurile si limita de scriere nu pot fi negative! \n");
+        }
+        this.maxLogRatio = maxLogRatio;
+        this.minLogRecords = minLogRecords;
+        this.maxBytesPerSecond = maxBytesPerSecond;
+    }
+
+    public void register(Compactable repository) {
+        repositories.add(repository);
+        repository.setCompactedInBackground(true);
+    }
+
+    public void unregister(Compactable repository) {
+        if (repositories.remove(repository)) {
+            repository.setCompactedInBackground(false);
+        }
+    }
+
+    public boolean needsCompaction(Compactable repository) {
+        long logRecords = repository.getLogRecords();
+        return logRecords >= minLogRecords && logRecords >= maxLogRatio * repository.getLiveEntities();
+    }
+
+    /**
+     * Checks the registered repositories every checkIntervalMillis, on a daemon thread, until close().
+     */
+    public synchronized void start(long checkIntervalMillis) {
+        close();
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "compaction");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            }
+            catch (RuntimeException re) {
+                re.printStackTrace();
+            }
+        }, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Compacts, on the calling thread, every registered repository that needs it.
+     * @return the number of repositories compacted
+     */
+    public int runOnce() {
+        int compacted = 0;
+        for (Compactable repository : repositories) {
+            if (needsCompaction(repository) && repository.compact(maxBytesPerSecond)) {
+                compacted++;
+            }
+        }
+        return compacted;
+    }
+
+    /**
+     * Stops the background checks; a compaction in progress is interrupted and leaves the files as they were.
+     */
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package repository;
+
+/**
+ * How far a repository pushes its writes before reporting them as done.
+ */
+public enum Durability {
+    /**
+     * Snapshots overwrite the live file in place; fastest, but a crash in the middle of a write corrupts the file.
+     */
+    NONE,
+    /**
+     * Snapshots are written to a temporary file which is flushed and atomically renamed over the live file,
+     * so a crashed process always leaves either the old or the new snapshot behind.
+     */
+    FLUSH,
+    /**
+     * Like FLUSH, but the temporary file is also forced to the disk before the rename and appended records are
+     * forced after every append, so the data survives an operating system crash or a power loss.
+     */
+    FSYNC,
+    /**
+     * As durable as FSYNC, but the appends of the XML journal and of the text repositories are forced by a committer
+     * thread: the callers that append while it forces the file wait together for its next force, so a single fsync
+     * covers a whole batch of concurrent mutations. The other repositories force every append, like FSYNC.
+     */
+    GROUP_COMMIT;
+
+    /**
+     * @return whether writes are forced to the disk before they are reported as done
+     */
+    boolean forced() { return this == FSYNC || this == GROUP_COMMIT; }
+}
@@ -0,0 +1,130 @@
+package repository;
+
+import metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The committer thread of Durability.GROUP_COMMIT. A mutation appends its records to the file under the write lock
+ * of the repository, without forcing them, takes the next sequence number from appended() and, once it released the
+ * lock, waits in await() until the committer has forced the file past that number. While the committer forces one
+ * batch, the following callers append and queue up for the next force, so each fsync covers every mutation that
+ * arrived during the previous one.
+ */
+final class GroupCommit implements Runnable {
+    private final Path file;
+    private final LatencyHistogram sync;
+    private final Thread thread;
+    private long appended;
+    private long durable;
+    private boolean stopped;
+
+    /**
+     * @param sequence the last sequence number of the previous committer of the file, so that the numbers handed out
+     * before it stopped count as durable
+     */
+    GroupCommit(Path file, LatencyHistogram sync, String name, long sequence) {
+        this.file = file;
+        this.sync = sync;
+        this.appended = sequence;
+        this.durable = sequence;
+        thread = new Thread(this, "group-commit-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the sequence number of the records just appended, for await()
+     */
+    synchronized long appended() {
+        notifyAll();
+        return ++appended;
+    }
+
+    /**
+     * Marks everything appended so far as durable, after a forced snapshot replaced the file.
+     */
+    synchronized void covered() {
+        durable = appended;
+        notifyAll();
+    }
+
+    /**
+     * Waits until the records with the given sequence number are on the disk; returns at once for 0.
+     */
+    synchronized void await(long sequence) {
+        boolean interrupted = false;
+        while (durable < sequence && !stopped) {
+            try {
+                wait();
+            }
+            catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Forces what is still pending and stops the thread; called under the write lock, so nothing is appended meanwhile.
+     * @return the last sequence number handed out
+     */
+    long stop() {
+        force();
+        synchronized (this) {
+            durable = appended;
+            stopped = true;
+            notifyAll();
+            return appended;
+        }
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long target;
+            synchronized (this) {
+                while (!stopped && durable == appended) {
+                    try {
+                        wait();
+                    }
+                    catch (InterruptedException ie) {
+                        return;
+                    }
+                }
+                if (stopped) {
+                    return;
+                }
+                target = appended;
+            }
+
+            // everything up to target was written to the file before it was opened here, or to a file that a forced
+            // snapshot has replaced since
+            force();
+            synchronized (this) {
+                durable = Math.max(durable, target);
+                notifyAll();
+            }
+        }
+    }
+
+    private void force() {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        catch (NoSuchFileException nsfe) {
+            // a checkpoint discarded the journal; the forced snapshot holds its records
+        }
+        catch (IOException ioe) {
+            ioe.printStackTrace();
+        }
+        sync.recordSince(start);
+    }
+}
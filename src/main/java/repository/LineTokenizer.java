@@ -0,0 +1,223 @@
+package repository;
+
+import exceptions.ValidationException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits the '#'-separated lines of a text repository in place, over one reused char buffer: no String is built for
+ * a line or for a numeric field, only for the text fields the entities keep. Lines end at "\n", "\r\n" or "\r".
+ */
+class LineTokenizer {
+    private static final char SEPARATOR = '#';
+    private static final int MAX_EXACT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private boolean skipLineFeed;
+
+    private int lineStart;
+    private int lineEnd;
+    private int[] fieldStarts = new int[8];
+    private int fieldCount;
+
+    LineTokenizer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Advances to the next line that is not empty.
+     * @return false at the end of the input
+     */
+    boolean nextLine() throws IOException {
+        while (true) {
+            if (!readLine()) {
+                return false;
+            }
+            if (lineEnd > lineStart) {
+                splitFields();
+                return true;
+            }
+        }
+    }
+
+    private boolean readLine() throws IOException {
+        int scanned = position;
+        while (true) {
+            if (skipLineFeed && scanned < limit) {
+                skipLineFeed = false;
+                if (buffer[scanned] == '\n') {
+                    scanned++;
+                    position = scanned;
+                }
+            }
+            while (scanned < limit) {
+                char c = buffer[scanned];
+                if (c == '\n' || c == '\r') {
+                    lineStart = position;
+                    lineEnd = scanned;
+                    position = scanned + 1;
+                    if (c == '\r') {
+                        skipLineFeed = true;
+                    }
+                    return true;
+                }
+                scanned++;
+            }
+
+            if (endOfInput) {
+                if (position == limit) {
+                    return false;
+                }
+                lineStart = position;
+                lineEnd = limit;
+                position = limit;
+                return true;
+            }
+            scanned -= position;
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unfinished line to the start of the buffer, growing it if the line fills it, and reads more input.
+     */
+    private void fill() throws IOException {
+        int pending = limit - position;
+        if (pending == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, pending);
+        }
+        position = 0;
+        limit = pending;
+
+        int read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            endOfInput = true;
+        }
+        else {
+            limit += read;
+        }
+    }
+
+    private void splitFields() {
+        fieldCount = 0;
+        addField(lineStart);
+        for (int i = lineStart; i < lineEnd; i++) {
+            if (buffer[i] == SEPARATOR) {
+                addField(i + 1);
+            }
+        }
+    }
+
+    private void addField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+        }
+        fieldStarts[fieldCount++] = start;
+    }
+
+    private int start(int field) {
+        if (field >= fieldCount) {
+            throw new ValidationException("Linie incompleta: " + new String(buffer, lineStart, lineEnd - lineStart) + "\n");
+        }
+        return fieldStarts[field];
+    }
+
+    private int end(int field) {
+        return field + 1 < fieldCount ? fieldStarts[field + 1] - 1 : lineEnd;
+    }
+
+    int getFieldCount() { return fieldCount; }
+
+    String getString(int field) {
+        int start = start(field);
+        return new String(buffer, start, end(field) - start);
+    }
+
+    int getInt(int field) {
+        int start = start(field);
+        int end = end(field);
+        int i = start;
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || (i < end && buffer[i] == '+')) {
+            i++;
+        }
+
+        long value = 0;
+        if (i < end && end - i <= 10) {
+            for (; i < end && buffer[i] >= '0' && buffer[i] <= '9'; i++) {
+                value = value * 10 + (buffer[i] - '0');
+            }
+            value = negative ? -value : value;
+            if (i == end && value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                return (int) value;
+            }
+        }
+        return parseSlowly(field, false).intValue();
+    }
+
+    /**
+     * Plain decimals of up to 15 significant digits are computed exactly in place; anything else (exponents,
+     * more digits, NaN, ...) goes through Double.parseDouble, so the result is always the same as before.
+     */
+    double getDouble(int field) {
+        int start = start(field);
+        int end = end(field);
+        int i = start;
+        boolean negative = i < end && buffer[i] == '-';
+        if (negative || (i < end && buffer[i] == '+')) {
+            i++;
+        }
+        int numberStart = i;
+
+        long mantissa = 0;
+        int digits = 0;
+        int decimals = -1;
+        for (; i < end; i++) {
+            char c = buffer[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) {
+                    digits++;
+                }
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            }
+            else if (c == '.' && decimals < 0) {
+                decimals = 0;
+            }
+            else {
+                break;
+            }
+        }
+
+        boolean hasDigits = i - numberStart > (decimals >= 0 ? 1 : 0);
+        if (i == end && hasDigits && digits <= MAX_EXACT_DIGITS && Math.max(decimals, 0) < POWERS_OF_TEN.length) {
+            double value = mantissa / POWERS_OF_TEN[Math.max(decimals, 0)];
+            return negative ? -value : value;
+        }
+        return parseSlowly(field, true).doubleValue();
+    }
+
+    private Number parseSlowly(int field, boolean decimal) {
+        String value = getString(field);
+        try {
+            return decimal ? (Number) Double.parseDouble(value) : (Number) Integer.parseInt(value);
+        }
+        catch(NumberFormatException nfe) {
+            throw new ValidationException("Numar invalid: " + value + "\n");
+        }
+    }
+}
@@ -0,0 +1,503 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import exceptions.AlreadyExistingEntityException;
+import exceptions.ValidationException;
+import validation.Validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A grade archive kept in a memory-mapped file instead of the heap: the records have a fixed width and are found
+ * through an open-addressing hash index on (IDStudent, IDTema), itself a memory-mapped file next to the archive.
+ * A Nota is decoded only when findOne or an iteration reaches it, so the heap use does not grow with the archive
+ * and the caching is left to the page cache of the operating system.
+ *
+ * Every record, live or deleted, owns one slot of the index; a deleted record is reused by the next insert whose
+ * probe sequence passes through its slot. The index is rebuilt from the archive when it is missing or out of date.
+ *
+ * The raw grade, when there is one, takes the last bytes of the feedback area and is flagged in the byte after the
+ * IDTema, which the archives written before it existed always left at zero; such a grade has a shorter feedback limit.
+ */
+public class MappedNotaRepository implements CRUDRepository<Pair<String, String>, Nota>, Closeable {
+    public static final int ID_BYTES = 32;
+    public static final int FEEDBACK_BYTES = 174;
+    public static final int FEEDBACK_BYTES_WITH_NOTA_INITIALA = FEEDBACK_BYTES - Double.BYTES;
+
+    private static final int MAGIC = 0x5353564D;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 256;
+    private static final int RECORDS_PER_SEGMENT = 1 << 14;
+    private static final byte LIVE = 1;
+    private static final byte DELETED = 2;
+
+    private static final int STATUS = 0;
+    private static final int STUDENT = 1;
+    private static final int TEMA = STUDENT + 1 + ID_BYTES;
+    private static final int HAS_NOTA_INITIALA = TEMA + 1 + ID_BYTES;
+    private static final int NOTA = 68;
+    private static final int SAPTAMANA = NOTA + Double.BYTES;
+    private static final int FEEDBACK = SAPTAMANA + Integer.BYTES;
+    private static final int NOTA_INITIALA = RECORD_BYTES - Double.BYTES;
+
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int INDEX_HEADER_BYTES = 16;
+    private static final int SLOT_BYTES = 8;
+    private static final int MIN_CAPACITY = 1024;
+    private static final int MAX_CAPACITY = 1 << 27;
+
+    private final Validator<Nota> validator;
+    private final String filename;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile Durability durability = Durability.FLUSH;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private int recordCount;
+    private int liveCount;
+
+    private FileChannel indexChannel;
+    private MappedByteBuffer index;
+    private int capacity;
+
+    public MappedNotaRepository(Validator<Nota> validator, String filename) {
+        this.validator = validator;
+        this.filename = filename;
+        try {
+            channel = FileChannel.open(Paths.get(filename),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+            boolean created = channel.size() == 0;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            if (created) {
+                header.putInt(0, MAGIC);
+            }
+            else if (header.getInt(0) != MAGIC) {
+                throw new IOException("Fisierul " + filename + " nu este o arhiva de note!");
+            }
+            recordCount = header.getInt(4);
+            liveCount = header.getInt(8);
+            mapSegments(recordCount);
+            openIndex();
+        }
+        catch(IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    public Durability getDurability() { return durability; }
+
+    /**
+     * FSYNC forces the archive and the index to the disk after every change; otherwise the changes reach the disk
+     * whenever the operating system writes the mapped pages back, and at close().
+     */
+    public void setDurability(Durability durability) { this.durability = durability; }
+
+    public int size() { return liveCount; }
+
+    private void mapSegments(int records) throws IOException {
+        while ((long) segments.size() * RECORDS_PER_SEGMENT < Math.max(records, 1)) {
+            long position = HEADER_BYTES + (long) segments.size() * RECORDS_PER_SEGMENT * RECORD_BYTES;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, (long) RECORDS_PER_SEGMENT * RECORD_BYTES));
+        }
+    }
+
+    private ByteBuffer segment(int record) {
+        return segments.get(record / RECORDS_PER_SEGMENT);
+    }
+
+    private static int offset(int record) {
+        return (record % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+
+    private void openIndex() throws IOException {
+        indexChannel = FileChannel.open(Paths.get(filename + INDEX_SUFFIX),
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        if (indexChannel.size() >= INDEX_HEADER_BYTES) {
+            MappedByteBuffer existing = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES);
+            int existingCapacity = existing.getInt(4);
+            if (existing.getInt(0) == MAGIC && existing.getInt(8) == recordCount
+                    && indexChannel.size() == INDEX_HEADER_BYTES + (long) existingCapacity * SLOT_BYTES) {
+                capacity = existingCapacity;
+                index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, indexChannel.size());
+                return;
+            }
+        }
+        rebuildIndex(capacityFor(recordCount));
+    }
+
+    private static int capacityFor(int records) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < MAX_CAPACITY && records + 1 > capacity / 10 * 7) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Recreates the index from the archive; deleted records get a slot as well, to be reused later.
+     */
+    private void rebuildIndex(int newCapacity) throws IOException {
+        index = null;
+        indexChannel.truncate(0);
+        capacity = newCapacity;
+        index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_BYTES + (long) capacity * SLOT_BYTES);
+        index.putInt(0, MAGIC);
+        index.putInt(4, capacity);
+
+        liveCount = 0;
+        for (int record = 0; record < recordCount; record++) {
+            if (segment(record).get(offset(record) + STATUS) == LIVE) {
+                liveCount++;
+            }
+            int hash = hash(segment(record), offset(record));
+            int slot = hash & (capacity - 1);
+            while (index.getInt(slotOffset(slot) + 4) != 0) {
+                slot = (slot + 1) & (capacity - 1);
+            }
+            index.putInt(slotOffset(slot), hash);
+            index.putInt(slotOffset(slot) + 4, record + 1);
+        }
+        index.putInt(8, recordCount);
+        header.putInt(8, liveCount);
+    }
+
+    private static int slotOffset(int slot) {
+        return INDEX_HEADER_BYTES + slot * SLOT_BYTES;
+    }
+
+    private static byte[] encode(String value, int maxBytes, String field) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxBytes) {
+            throw new ValidationException(field + " prea lung pentru arhiva! \n");
+        }
+        return bytes;
+    }
+
+    private static int hash(byte[] student, byte[] tema) {
+        int hash = 1;
+        for (byte b : student) {
+            hash = 31 * hash + b;
+        }
+        hash = 31 * hash + 0xFF;
+        for (byte b : tema) {
+            hash = 31 * hash + b;
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int hash(ByteBuffer segment, int offset) {
+        return hash(readBytes(segment, offset + STUDENT), readBytes(segment, offset + TEMA));
+    }
+
+    private static byte[] readBytes(ByteBuffer segment, int position) {
+        byte[] bytes = new byte[segment.get(position) & 0xFF];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = segment.get(position + 1 + i);
+        }
+        return bytes;
+    }
+
+    private static boolean sameBytes(ByteBuffer segment, int position, byte[] expected) {
+        if ((segment.get(position) & 0xFF) != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (segment.get(position + 1 + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the slot holding the live record with the given key, or -(first reusable slot) - 1 if there is none;
+     * the reusable slot is the first deleted record on the probe sequence, or the empty slot ending it
+     */
+    private int findSlot(byte[] student, byte[] tema, int hash) {
+        int reusable = -1;
+        int slot = hash & (capacity - 1);
+        while (true) {
+            int record = index.getInt(slotOffset(slot) + 4) - 1;
+            if (record < 0) {
+                return -(reusable >= 0 ? reusable : slot) - 1;
+            }
+
+            ByteBuffer segment = segment(record);
+            int offset = offset(record);
+            if (segment.get(offset + STATUS) == DELETED) {
+                if (reusable < 0) {
+                    reusable = slot;
+                }
+            }
+            else if (index.getInt(slotOffset(slot)) == hash && sameBytes(segment, offset + STUDENT, student)
+                    && sameBytes(segment, offset + TEMA, tema)) {
+                return slot;
+            }
+            slot = (slot + 1) & (capacity - 1);
+        }
+    }
+
+    /**
+     * @return the number of the live record with the given key, or -1; the caller holds the lock
+     */
+    private int liveRecord(Pair<String, String> id) {
+        byte[] student = id.getObject1() == null ? null : id.getObject1().getBytes(StandardCharsets.UTF_8);
+        byte[] tema = id.getObject2() == null ? null : id.getObject2().getBytes(StandardCharsets.UTF_8);
+        if (student == null || tema == null || student.length > ID_BYTES || tema.length > ID_BYTES) {
+            return -1;
+        }
+        int slot = findSlot(student, tema, hash(student, tema));
+        return slot < 0 ? -1 : index.getInt(slotOffset(slot) + 4) - 1;
+    }
+
+    private Nota decode(int record) {
+        ByteBuffer segment = segment(record);
+        int offset = offset(record);
+        String student = new String(readBytes(segment, offset + STUDENT), StandardCharsets.UTF_8);
+        String tema = new String(readBytes(segment, offset + TEMA), StandardCharsets.UTF_8);
+        byte[] feedback = new byte[segment.getShort(offset + FEEDBACK)];
+        for (int i = 0; i < feedback.length; i++) {
+            feedback[i] = segment.get(offset + FEEDBACK + 2 + i);
+        }
+        Double notaInitiala = segment.get(offset + HAS_NOTA_INITIALA) == 1 ? segment.getDouble(offset + NOTA_INITIALA) : null;
+        return new Nota(new Pair<>(student, tema), segment.getDouble(offset + NOTA), segment.getInt(offset + SAPTAMANA),
+                new String(feedback, StandardCharsets.UTF_8), notaInitiala);
+    }
+
+    private static byte[] encodeFeedback(Nota nota) {
+        return encode(nota.getFeedback(), nota.getNotaInitiala() == null ? FEEDBACK_BYTES : FEEDBACK_BYTES_WITH_NOTA_INITIALA,
+                "Feedback-ul");
+    }
+
+    private void write(int record, byte[] student, byte[] tema, Nota nota, byte[] feedback) {
+        ByteBuffer segment = segment(record);
+        int offset = offset(record);
+        segment.put(offset + STUDENT, (byte) student.length);
+        for (int i = 0; i < student.length; i++) {
+            segment.put(offset + STUDENT + 1 + i, student[i]);
+        }
+        segment.put(offset + TEMA, (byte) tema.length);
+        for (int i = 0; i < tema.length; i++) {
+            segment.put(offset + TEMA + 1 + i, tema[i]);
+        }
+        segment.putDouble(offset + NOTA, nota.getNota());
+        segment.putInt(offset + SAPTAMANA, nota.getSaptamanaPredare());
+        segment.putShort(offset + FEEDBACK, (short) feedback.length);
+        for (int i = 0; i < feedback.length; i++) {
+            segment.put(offset + FEEDBACK + 2 + i, feedback[i]);
+        }
+        if (nota.getNotaInitiala() != null) {
+            segment.putDouble(offset + NOTA_INITIALA, nota.getNotaInitiala());
+        }
+        segment.put(offset + HAS_NOTA_INITIALA, (byte) (nota.getNotaInitiala() == null ? 0 : 1));
+        // the status goes last, so a record is never live before its content is complete
+        segment.put(offset + STATUS, LIVE);
+    }
+
+    private void writeCounts() {
+        header.putInt(4, recordCount);
+        header.putInt(8, liveCount);
+        index.putInt(8, recordCount);
+        if (durability.forced()) {
+            segments.forEach(MappedByteBuffer::force);
+            index.force();
+            header.force();
+        }
+    }
+
+    @Override
+    public Nota findOne(Pair<String, String> id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID-ul nu poate fi null! \n");
+        }
+        lock.readLock().lock();
+        try {
+            int record = liveRecord(id);
+            return record < 0 ? null : decode(record);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the live grades in archive order; each grade is decoded when the iteration reaches it
+     */
+    @Override
+    public Iterable<Nota> findAll() {
+        return () -> new Iterator<Nota>() {
+            private int record = -1;
+            private int nextLive = advance(-1);
+
+            private int advance(int from) {
+                lock.readLock().lock();
+                try {
+                    int candidate = from + 1;
+                    while (candidate < recordCount && segment(candidate).get(offset(candidate) + STATUS) != LIVE) {
+                        candidate++;
+                    }
+                    return candidate < recordCount ? candidate : -1;
+                }
+                finally {
+                    lock.readLock().unlock();
+                }
+            }
+
+            @Override
+            public boolean hasNext() { return nextLive >= 0; }
+
+            @Override
+            public Nota next() {
+                if (nextLive < 0) {
+                    throw new NoSuchElementException();
+                }
+                record = nextLive;
+                Nota nota;
+                lock.readLock().lock();
+                try {
+                    nota = decode(record);
+                }
+                finally {
+                    lock.readLock().unlock();
+                }
+                nextLive = advance(record);
+                return nota;
+            }
+        };
+    }
+
+    @Override
+    public Nota save(Nota nota) throws ValidationException, AlreadyExistingEntityException {
+        validator.validate(nota);
+        byte[] student = encode(nota.getID().getObject1(), ID_BYTES, "ID-ul studentului");
+        byte[] tema = encode(nota.getID().getObject2(), ID_BYTES, "ID-ul temei");
+        byte[] feedback = encodeFeedback(nota);
+        int hash = hash(student, tema);
+
+        lock.writeLock().lock();
+        try {
+            int slot = findSlot(student, tema, hash);
+            if (slot >= 0) {
+                throw new AlreadyExistingEntityException("The entity is already existing!\n");
+            }
+            slot = -slot - 1;
+
+            int record = index.getInt(slotOffset(slot) + 4) - 1;
+            if (record < 0 && recordCount + 1 > capacity / 10 * 7) {
+                if (capacity == MAX_CAPACITY) {
+                    throw new IllegalStateException("Arhiva de note este plina! \n");
+                }
+                rebuildIndex(capacity << 1);
+                slot = -findSlot(student, tema, hash) - 1;
+                record = index.getInt(slotOffset(slot) + 4) - 1;
+            }
+            if (record < 0) {
+                record = recordCount++;
+                mapSegments(recordCount);
+            }
+
+            write(record, student, tema, nota, feedback);
+            index.putInt(slotOffset(slot), hash);
+            index.putInt(slotOffset(slot) + 4, record + 1);
+            liveCount++;
+            writeCounts();
+            return nota;
+        }
+        catch(IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Nota delete(Pair<String, String> id) {
+        if (id == null) {
+            throw new IllegalArgumentException("ID-ul nu poate fi nul! \n");
+        }
+        lock.writeLock().lock();
+        try {
+            int record = liveRecord(id);
+            if (record < 0) {
+                return null;
+            }
+
+            Nota removed = decode(record);
+            segment(record).put(offset(record) + STATUS, DELETED);
+            liveCount--;
+            writeCounts();
+            return removed;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Nota update(Nota nota) {
+        byte[] feedback;
+        try {
+            validator.validate(nota);
+            feedback = encodeFeedback(nota);
+        }
+        catch (ValidationException ve) {
+            System.out.println("Entitatea nu este valida! \n");
+            return null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            int record = liveRecord(nota.getID());
+            if (record < 0) {
+                return null;
+            }
+
+            Nota replaced = decode(record);
+            ByteBuffer segment = segment(record);
+            write(record, readBytes(segment, offset(record) + STUDENT), readBytes(segment, offset(record) + TEMA), nota, feedback);
+            writeCounts();
+            return replaced;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces the archive and the index to the disk.
+     */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            header.force();
+            segments.forEach(MappedByteBuffer::force);
+            index.force();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        channel.close();
+        indexChannel.close();
+    }
+}
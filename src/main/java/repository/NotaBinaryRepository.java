@@ -0,0 +1,43 @@
+package repository;
+
+import domain.Nota;
+import domain.Pair;
+import validation.Validator;
+
+public class NotaBinaryRepository extends AbstractBinaryRepository<Pair<String, String>, Nota> {
+
+    public NotaBinaryRepository(Validator<Nota> validator, String filename) {
+        super(validator, filename);
+        loadFromBinaryFile();
+    }
+
+    /**
+     * The raw grade, when there is one, ends the record; the records written before it existed simply end earlier.
+     */
+    @Override
+    protected void writeEntity(RecordOutput out, Nota nota) {
+        writeId(out, nota.getID());
+        out.writeDouble(nota.getNota());
+        out.writeInt(nota.getSaptamanaPredare());
+        out.writeString(nota.getFeedback());
+        if (nota.getNotaInitiala() != null) {
+            out.writeDouble(nota.getNotaInitiala());
+        }
+    }
+
+    @Override
+    protected Nota readEntity(RecordInput in) {
+        return new Nota(readId(in), in.readDouble(), in.readInt(), in.readString(), in.hasRemaining() ? in.readDouble() : null);
+    }
+
+    @Override
+    protected void writeId(RecordOutput out, Pair<String, String> id) {
+        out.writeString(id.getObject1());
+        out.writeString(id.getObject2());
+    }
+
+    @Override
+    protected Pair<String, String> readId(RecordInput in) {
+        return new Pair<>(in.readString(), in.readString());
+    }
+}
@@ -2,12 +2,8 @@ package repository;
 
 import domain.Nota;
 import domain.Pair;
-import exceptions.ValidationException;
 import validation.Validator;
 
-import java.io.*;
-import java.util.stream.Collectors;
-
 public class NotaFileRepository extends AbstractFileRepository<Pair<String, String>, Nota> {
 
     public NotaFileRepository(Validator<Nota> validator, String filename) {
@@ -15,45 +11,18 @@ public class NotaFileRepository extends AbstractFileRepository<Pair<String, Stri
         loadFromFile();
     }
 
-    protected void loadFromFile() {
-        try (BufferedReader buffer = new BufferedReader(new FileReader(filename))) {
-            buffer.lines().collect(Collectors.toList()).forEach(line -> {
-                String[] result = line.split("#");
-                Nota nota = new Nota(new Pair(result[0], result[1]), Double.parseDouble(result[2]),
-                        Integer.parseInt(result[3]), result[4]);
-                try {
-                    super.save(nota);
-                } catch (ValidationException ve) {
-                    ve.printStackTrace();
-                }
-            });
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-        }
-    }
-
-    protected void writeToFile(Nota nota) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
-            bw.write(nota.getID().getObject1() + "#" + nota.getID().getObject2() + "#" + nota.getNota() + "#"
-                    + nota.getSaptamanaPredare() + "#" + nota.getFeedback() + "\n");
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-        }
+    /**
+     * The raw grade, when there is one, is an optional sixth field, so the lines written before it existed still load.
+     */
+    protected Nota getEntityFromFields(LineTokenizer line) {
+        return new Nota(new Pair<>(line.getString(0), line.getString(1)), line.getDouble(2), line.getInt(3),
+                line.getString(4), line.getFieldCount() > 5 ? line.getDouble(5) : null);
     }
 
-    protected void writeToFileAll() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, false))) {
-            super.entities.values().forEach(nota -> {
-                try {
-                    bw.write(nota.getID().getObject1() + "#" + nota.getID().getObject2() + "#" + nota.getNota()
-                            + "#" + nota.getSaptamanaPredare() + "#" + nota.getFeedback() + "\n");
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-        }
+    protected String getLineFromEntity(Nota nota) {
+        String line = nota.getID().getObject1() + "#" + nota.getID().getObject2() + "#" + nota.getNota() + "#"
+                + nota.getSaptamanaPredare() + "#" + nota.getFeedback();
+        return nota.getNotaInitiala() == null ? line : line + "#" + nota.getNotaInitiala();
     }
 
 //    protected void createFile(Nota notaObj) {
@@ -2,72 +2,127 @@ package repository;
 
 import domain.Nota;
 import domain.Pair;
-import domain.Student;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import validation.StudentValidator;
-import validation.TemaValidator;
 import validation.Validator;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 public class NotaXMLRepository extends AbstractXMLRepository<Pair<String, String>, Nota> {
+    private final Map<String, Map<String, Nota>> noteByStudent = new HashMap<>();
+    private final Map<String, Map<String, Nota>> noteByTema = new HashMap<>();
 
     public NotaXMLRepository(Validator<Nota> validator, String XMLfilename) {
         super(validator, XMLfilename);
         loadFromXmlFile();
     }
 
-    protected Element getElementFromEntity(Nota nota, Document XMLdocument) {
-        Element element = XMLdocument.createElement("nota");
-        element.setAttribute("IDStudent", nota.getID().getObject1());
-        element.setAttribute("IDTema", nota.getID().getObject2());
+    /**
+     * @return the grades of the given student, without scanning the other grades
+     */
+    public List<Nota> findByStudent(String idStudent) {
+        return findInIndex(noteByStudent, idStudent);
+    }
 
-        element.appendChild(createElement(XMLdocument, "Nota", String.valueOf(nota.getNota())));
-        element.appendChild(createElement(XMLdocument, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare())));
-        element.appendChild(createElement(XMLdocument, "Feedback", nota.getFeedback()));
+    /**
+     * @return the grades given for the given homework, without scanning the other grades
+     */
+    public List<Nota> findByTema(String idTema) {
+        return findInIndex(noteByTema, idTema);
+    }
 
-        return element;
+    private List<Nota> findInIndex(Map<String, Map<String, Nota>> index, String key) {
+        lock.readLock().lock();
+        try {
+            Map<String, Nota> note = index.get(key);
+            return note == null ? Collections.emptyList() : new ArrayList<>(note.values());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
     }
 
-    protected Nota getEntityFromNode(Element node) {
-        String IDStudent = node.getAttributeNode("IDStudent").getValue();
-        String IDTema= node.getAttributeNode("IDTema").getValue();
-        double nota = Double.parseDouble(node.getElementsByTagName("Nota").item(0).getTextContent());
-        int saptamanaPredare = Integer.parseInt(node.getElementsByTagName("SaptamanaPredare").item(0).getTextContent());
-        String feedback = node.getElementsByTagName("Feedback").item(0).getTextContent();
+    @Override
+    protected void entityAdded(Nota nota) {
+        String idStudent = nota.getID().getObject1();
+        String idTema = nota.getID().getObject2();
+        noteByStudent.computeIfAbsent(idStudent, id -> new LinkedHashMap<>()).put(idTema, nota);
+        noteByTema.computeIfAbsent(idTema, id -> new LinkedHashMap<>()).put(idStudent, nota);
+    }
 
-        return new Nota(new Pair(IDStudent, IDTema), nota, saptamanaPredare, feedback);
+    @Override
+    protected void entityRemoved(Nota nota) {
+        String idStudent = nota.getID().getObject1();
+        String idTema = nota.getID().getObject2();
+        removeFromIndex(noteByStudent, idStudent, idTema);
+        removeFromIndex(noteByTema, idTema, idStudent);
     }
 
-    public void createFile(Nota notaObj) {
-        String idStudent = notaObj.getID().getObject1();
-        StudentValidator sval = new StudentValidator();
-        TemaValidator tval = new TemaValidator();
-        StudentFileRepository srepo = new StudentFileRepository(sval, "studenti.txt");
-        TemaFileRepository trepo = new TemaFileRepository(tval, "teme.txt");
-
-        Student student = srepo.findOne(idStudent);
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(student.getNume() + ".txt", false))) {
-            super.findAll().forEach(nota -> {
-                if (nota.getID().getObject1().equals(idStudent)) {
-                    try {
-                        bw.write("Tema: " + nota.getID().getObject2() + "\n");
-                        bw.write("Nota: " + nota.getNota() + "\n");
-                        bw.write("Predata in saptamana: " + nota.getSaptamanaPredare() + "\n");
-                        bw.write("Deadline: " + trepo.findOne(nota.getID().getObject2()).getDeadline() + "\n");
-                        bw.write("Feedback: " + nota.getFeedback() + "\n\n");
-                    } catch (IOException e) {
-                        e.printStackTrace();
-                    }
-                }
-            });
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+    @Override
+    protected void entitiesCleared() {
+        noteByStudent.clear();
+        noteByTema.clear();
+    }
+
+    private static void removeFromIndex(Map<String, Map<String, Nota>> index, String key, String otherKey) {
+        Map<String, Nota> note = index.get(key);
+        if (note != null) {
+            note.remove(otherKey);
+            if (note.isEmpty()) {
+                index.remove(key);
+            }
         }
     }
+
+    protected void writeEntity(XMLStreamWriter writer, Nota nota) throws XMLStreamException {
+        writeStartEntity(writer, "nota", "IDStudent", nota.getID().getObject1(), "IDTema", nota.getID().getObject2());
+
+        writeElement(writer, "Nota", String.valueOf(nota.getNota()));
+        writeElement(writer, "SaptamanaPredare", String.valueOf(nota.getSaptamanaPredare()));
+        writeElement(writer, "Feedback", nota.getFeedback());
+        if (nota.getNotaInitiala() != null) {
+            writeElement(writer, "NotaInitiala", String.valueOf(nota.getNotaInitiala()));
+        }
+
+        writeEndEntity(writer);
+    }
+
+    protected Nota getEntityFromReader(XMLStreamReader reader) throws XMLStreamException {
+        String IDStudent = reader.getAttributeValue(null, "IDStudent");
+        String IDTema = reader.getAttributeValue(null, "IDTema");
+        double nota = 0;
+        int saptamanaPredare = 0;
+        String feedback = null;
+        Double notaInitiala = null;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Nota":
+                    nota = Double.parseDouble(reader.getElementText());
+                    break;
+                case "SaptamanaPredare":
+                    saptamanaPredare = Integer.parseInt(reader.getElementText());
+                    break;
+                case "Feedback":
+                    feedback = reader.getElementText();
+                    break;
+                case "NotaInitiala":
+                    notaInitiala = Double.parseDouble(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+
+        return new Nota(new Pair<>(IDStudent, IDTema), nota, saptamanaPredare, feedback, notaInitiala);
+    }
 }
 //    public void createFile(Nota notaObj) {
 //        String idStudent = notaObj.getID().getObject1();
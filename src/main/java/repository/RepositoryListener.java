@@ -0,0 +1,22 @@
+package repository;
+
+/**
+ * Notified by a repository after each change of its entities, on the thread that made the change and while it still
+ * holds the write lock of the repository: listeners must be quick and must not write to the repository.
+ */
+public interface RepositoryListener<E> {
+    /**
+     * Called after an entity enters the repository, including the new version of an updated entity.
+     */
+    default void entityAdded(E entity) { }
+
+    /**
+     * Called after an entity leaves the repository, including the old version of an updated entity.
+     */
+    default void entityRemoved(E entity) { }
+
+    /**
+     * Called after all entities were dropped at once, before a full reload.
+     */
+    default void entitiesCleared() { }
+}
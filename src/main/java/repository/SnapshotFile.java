@@ -0,0 +1,109 @@
+package repository;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces the content of a file according to a Durability level: the new content is written through
+ * getOutputStream() and only becomes visible once commit() returns. Closing without committing
+ * leaves the original file untouched (except for Durability.NONE, which writes in place).
+ */
+class SnapshotFile implements Closeable {
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path written;
+    private final Durability durability;
+    private final FileChannel channel;
+    private final OutputStream out;
+    private boolean committed;
+    private long length;
+
+    SnapshotFile(Path target, Durability durability) throws IOException {
+        this.target = target;
+        this.durability = durability;
+        this.written = durability == Durability.NONE ? target : target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+        this.channel = FileChannel.open(written,
+                StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+    }
+
+    OutputStream getOutputStream() { return out; }
+
+    /**
+     * @return the number of bytes written, once committed
+     */
+    long getLength() { return length; }
+
+    void commit() throws IOException {
+        out.flush();
+        length = channel.position();
+        if (durability.forced()) {
+            channel.force(true);
+        }
+        out.close();
+
+        if (durability != Durability.NONE) {
+            replace(written, target, durability);
+        }
+        committed = true;
+    }
+
+    /**
+     * Atomically renames a complete file over the target; the file must already be forced if the durability asks so.
+     */
+    static void replace(Path written, Path target, Durability durability) throws IOException {
+        try {
+            Files.move(written, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (AtomicMoveNotSupportedException amnse) {
+            Files.move(written, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (durability.forced()) {
+            forceDirectory(target.toAbsolutePath().getParent());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!committed) {
+            try {
+                out.close();
+            }
+            finally {
+                if (durability != Durability.NONE) {
+                    Files.deleteIfExists(written);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces an appended region of an already open file according to the durability level.
+     */
+    static void forceAppend(FileChannel channel, Durability durability) throws IOException {
+        if (durability.forced()) {
+            channel.force(false);
+        }
+    }
+
+    private static void forceDirectory(Path directory) {
+        // makes the rename itself durable; not every platform allows opening a directory, so this is best effort
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+        catch (IOException ioe) {
+            // the file content is already on disk
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package repository;
+
+import domain.Student;
+import validation.Validator;
+
+public class StudentBinaryRepository extends AbstractBinaryRepository<String, Student> {
+
+    public StudentBinaryRepository(Validator<Student> validator, String filename) {
+        super(validator, filename);
+        loadFromBinaryFile();
+    }
+
+    @Override
+    protected void writeEntity(RecordOutput out, Student student) {
+        out.writeString(student.getID());
+        out.writeString(student.getNume());
+        out.writeInt(student.getGrupa());
+    }
+
+    @Override
+    protected Student readEntity(RecordInput in) {
+        return new Student(in.readString(), in.readString(), in.readInt());
+    }
+
+    @Override
+    protected void writeId(RecordOutput out, String id) { out.writeString(id); }
+
+    @Override
+    protected String readId(RecordInput in) { return in.readString(); }
+}
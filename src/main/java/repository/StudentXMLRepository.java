@@ -1,31 +1,113 @@
 package repository;
 
 import domain.Student;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import validation.StudentValidator;
 import validation.Validator;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public class StudentXMLRepository extends AbstractXMLRepository<String, Student> {
+    // groups are bounded by StudentValidator, so the index is a list with one slot per group; other groups only appear
+    // when the repository is used with a different validator
+    private final List<Set<String>> studentsByGrupa =
+            new ArrayList<>(Collections.nCopies(StudentValidator.GRUPA_MAXIMA - StudentValidator.GRUPA_MINIMA + 1, null));
+    private final Map<Integer, Set<String>> studentsByOtherGrupa = new HashMap<>();
 
     public StudentXMLRepository(Validator<Student> validator, String XMLfilename) {
         super(validator, XMLfilename);
         loadFromXmlFile();
     }
 
-    protected Element getElementFromEntity(Student student, Document XMLdocument) {
-        Element element = XMLdocument.createElement("student");
-        element.setAttribute("ID", student.getID());
+    /**
+     * @return the students of the given group, without scanning the other students
+     */
+    public List<Student> findByGrupa(int grupa) {
+        lock.readLock().lock();
+        try {
+            Set<String> ids = grupaIndex(grupa, false);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+
+            List<Student> students = new ArrayList<>(ids.size());
+            for (String id : ids) {
+                students.add(entities.get(id));
+            }
+            return students;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
 
-        element.appendChild(createElement(XMLdocument, "Nume", student.getNume()));
-        element.appendChild(createElement(XMLdocument, "Grupa", String.valueOf(student.getGrupa())));
+    @Override
+    protected void entityAdded(Student student) {
+        grupaIndex(student.getGrupa(), true).add(student.getID());
+    }
 
-        return element;
+    @Override
+    protected void entityRemoved(Student student) {
+        Set<String> ids = grupaIndex(student.getGrupa(), false);
+        if (ids != null) {
+            ids.remove(student.getID());
+        }
     }
 
-    protected Student getEntityFromNode(Element node) {
-        String ID = node.getAttributeNode("ID").getValue();
-        String nume = node.getElementsByTagName("Nume").item(0).getTextContent();
-        int grupa = Integer.parseInt(node.getElementsByTagName("Grupa").item(0).getTextContent());
+    @Override
+    protected void entitiesCleared() {
+        Collections.fill(studentsByGrupa, null);
+        studentsByOtherGrupa.clear();
+    }
+
+    private Set<String> grupaIndex(int grupa, boolean create) {
+        if (grupa >= StudentValidator.GRUPA_MINIMA && grupa <= StudentValidator.GRUPA_MAXIMA) {
+            int slot = grupa - StudentValidator.GRUPA_MINIMA;
+            Set<String> ids = studentsByGrupa.get(slot);
+            if (ids == null && create) {
+                ids = new LinkedHashSet<>();
+                studentsByGrupa.set(slot, ids);
+            }
+            return ids;
+        }
+        return create ? studentsByOtherGrupa.computeIfAbsent(grupa, g -> new LinkedHashSet<>()) : studentsByOtherGrupa.get(grupa);
+    }
+
+    protected void writeEntity(XMLStreamWriter writer, Student student) throws XMLStreamException {
+        writeStartEntity(writer, "student", "ID", student.getID());
+
+        writeElement(writer, "Nume", student.getNume());
+        writeElement(writer, "Grupa", String.valueOf(student.getGrupa()));
+
+        writeEndEntity(writer);
+    }
+
+    protected Student getEntityFromReader(XMLStreamReader reader) throws XMLStreamException {
+        String ID = reader.getAttributeValue(null, "ID");
+        String nume = null;
+        int grupa = 0;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Nume":
+                    nume = reader.getElementText();
+                    break;
+                case "Grupa":
+                    grupa = Integer.parseInt(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
 
         return new Student(ID, nume, grupa);
     }
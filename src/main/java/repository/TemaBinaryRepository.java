@@ -0,0 +1,31 @@
+package repository;
+
+import domain.Tema;
+import validation.Validator;
+
+public class TemaBinaryRepository extends AbstractBinaryRepository<String, Tema> {
+
+    public TemaBinaryRepository(Validator<Tema> validator, String filename) {
+        super(validator, filename);
+        loadFromBinaryFile();
+    }
+
+    @Override
+    protected void writeEntity(RecordOutput out, Tema tema) {
+        out.writeString(tema.getID());
+        out.writeString(tema.getDescriere());
+        out.writeInt(tema.getDeadline());
+        out.writeInt(tema.getStartline());
+    }
+
+    @Override
+    protected Tema readEntity(RecordInput in) {
+        return new Tema(in.readString(), in.readString(), in.readInt(), in.readInt());
+    }
+
+    @Override
+    protected void writeId(RecordOutput out, String id) { out.writeString(id); }
+
+    @Override
+    protected String readId(RecordInput in) { return in.readString(); }
+}
@@ -1,12 +1,8 @@
 package repository;
 
 import domain.Tema;
-import exceptions.ValidationException;
 import validation.Validator;
 
-import java.io.*;
-import java.util.stream.Collectors;
-
 public class TemaFileRepository extends AbstractFileRepository<String, Tema> {
 
     public TemaFileRepository(Validator<Tema> validator, String filename) {
@@ -14,43 +10,11 @@ public class TemaFileRepository extends AbstractFileRepository<String, Tema> {
         loadFromFile();
     }
 
-    protected void loadFromFile() {
-        try (BufferedReader buffer = new BufferedReader(new FileReader(filename))) {
-            buffer.lines().collect(Collectors.toList()).forEach(line -> {
-                String[] result = line.split("#");
-                Tema tema = new Tema(result[0], result[1], Integer.parseInt(result[2]), Integer.parseInt(result[3]));
-                try {
-                    super.save(tema);
-                } catch (ValidationException ve) {
-                    ve.printStackTrace();
-                }
-            });
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
-        }
-    }
-
-    protected void writeToFile(Tema tema) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, true))) {
-            bw.write(tema.getID() + "#" + tema.getDescriere() + "#" + tema.getDeadline() + "#" + tema.getStartline() + "\n");
-        }
-        catch(IOException ioe) {
-            ioe.printStackTrace();
-        }
+    protected Tema getEntityFromFields(LineTokenizer line) {
+        return new Tema(line.getString(0), line.getString(1), line.getInt(2), line.getInt(3));
     }
 
-    protected void writeToFileAll() {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(filename, false))) {
-            super.entities.values().forEach(tema -> {
-                try {
-                    bw.write(tema.getID() + "#" + tema.getDescriere() + "#" + tema.getDeadline() + "#" + tema.getStartline() + "\n");
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            });
-        }
-        catch(IOException ioe) {
-            ioe.printStackTrace();
-        }
+    protected String getLineFromEntity(Tema tema) {
+        return tema.getID() + "#" + tema.getDescriere() + "#" + tema.getDeadline() + "#" + tema.getStartline();
     }
 }
@@ -1,10 +1,13 @@
 package repository;
 
 import domain.Tema;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
 import validation.Validator;
 
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 public class TemaXMLRepository extends AbstractXMLRepository<String, Tema> {
 
     public TemaXMLRepository(Validator<Tema> validator, String XMLfilename) {
@@ -12,22 +15,37 @@ public class TemaXMLRepository extends AbstractXMLRepository<String, Tema> {
         loadFromXmlFile();
     }
 
-    protected Element getElementFromEntity(Tema tema, Document XMLdocument) {
-        Element element = XMLdocument.createElement("tema");
-        element.setAttribute("ID", tema.getID());
+    protected void writeEntity(XMLStreamWriter writer, Tema tema) throws XMLStreamException {
+        writeStartEntity(writer, "tema", "ID", tema.getID());
 
-        element.appendChild(createElement(XMLdocument, "Descriere", tema.getDescriere()));
-        element.appendChild(createElement(XMLdocument, "Deadline", String.valueOf(tema.getDeadline())));
-        element.appendChild(createElement(XMLdocument, "Startline", String.valueOf(tema.getStartline())));
+        writeElement(writer, "Descriere", tema.getDescriere());
+        writeElement(writer, "Deadline", String.valueOf(tema.getDeadline()));
+        writeElement(writer, "Startline", String.valueOf(tema.getStartline()));
 
-        return element;
+        writeEndEntity(writer);
     }
 
-    protected Tema getEntityFromNode(Element node) {
-        String ID = node.getAttributeNode("ID").getValue();
-        String descriere = node.getElementsByTagName("Descriere").item(0).getTextContent();
-        int deadline = Integer.parseInt(node.getElementsByTagName("Deadline").item(0).getTextContent());
-        int startline = Integer.parseInt(node.getElementsByTagName("Startline").item(0).getTextContent());
+    protected Tema getEntityFromReader(XMLStreamReader reader) throws XMLStreamException {
+        String ID = reader.getAttributeValue(null, "ID");
+        String descriere = null;
+        int deadline = 0;
+        int startline = 0;
+
+        while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "Descriere":
+                    descriere = reader.getElementText();
+                    break;
+                case "Deadline":
+                    deadline = Integer.parseInt(reader.getElementText());
+                    break;
+                case "Startline":
+                    startline = Integer.parseInt(reader.getElementText());
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
 
         return new Tema(ID, descriere, deadline, startline);
     }
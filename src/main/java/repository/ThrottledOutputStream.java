@@ -0,0 +1,51 @@
+package repository;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sleeps after each write as long as needed to keep the average rate at most bytesPerSecond (0 for no limit),
+ * so that a background compaction leaves the disk to the foreground writes.
+ */
+final class ThrottledOutputStream extends FilterOutputStream {
+    private final long bytesPerSecond;
+    private final long start = System.nanoTime();
+    private long written;
+
+    ThrottledOutputStream(OutputStream out, long bytesPerSecond) {
+        super(out);
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        throttle(1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        throttle(len);
+    }
+
+    private void throttle(int bytes) throws IOException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+        written += bytes;
+        long wait = start + (long) (written * 1e9 / bytesPerSecond) - System.nanoTime();
+        if (wait > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Scrierea a fost intrerupta! \n");
+            }
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Holds the locks of several repositories for the duration of one operation. Repositories enlisted with read() cannot
+ * change until close(); repositories enlisted with write() are changed by this operation only, and their writes to
+ * disk are coalesced into a single flush per repository at commit(). Under Durability.GROUP_COMMIT, close() waits for
+ * the flushes to be forced to the disk only after it released the locks, so concurrent operations share the fsync.
+ * To avoid deadlocks, every caller enlists the repositories in the same order: students, homeworks, grades.
+ * A repository must not be enlisted twice.
+ */
+public class UnitOfWork implements AutoCloseable {
+    private final Deque<Runnable> releases = new ArrayDeque<>();
+    private final List<AbstractCRUDRepository<?, ?>> writers = new ArrayList<>();
+    private final List<Long> sequences = new ArrayList<>();
+    private boolean committed;
+
+    public UnitOfWork read(AbstractCRUDRepository<?, ?> repository) {
+        repository.lockForRead();
+        releases.push(repository::unlockRead);
+        return this;
+    }
+
+    public UnitOfWork write(AbstractCRUDRepository<?, ?> repository) {
+        repository.lockForWrite();
+        releases.push(repository::unlockWrite);
+        repository.beginDeferredWrites();
+        writers.add(repository);
+        return this;
+    }
+
+    /**
+     * Writes the changes of every enlisted writer to disk, once per repository.
+     */
+    public void commit() {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        for (AbstractCRUDRepository<?, ?> writer : writers) {
+            sequences.add(writer.endDeferredWrites());
+        }
+    }
+
+    /**
+     * Commits whatever was not committed yet, since the changes are already visible in memory, releases the locks
+     * in the reverse order of their acquisition and then waits until the writes are durable.
+     */
+    @Override
+    public void close() {
+        try {
+            commit();
+        }
+        finally {
+            while (!releases.isEmpty()) {
+                releases.pop().run();
+            }
+        }
+        for (int i = 0; i < sequences.size(); i++) {
+            writers.get(i).awaitDurable(sequences.get(i));
+        }
+    }
+}
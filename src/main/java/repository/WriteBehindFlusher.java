@@ -0,0 +1,80 @@
+package repository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The background thread of a repository in write-behind mode. It sleeps until the first mutation after a flush, then
+ * waits until the interval has passed or maxDirty mutations have piled up, and flushes them all with one write.
+ * A shutdown hook flushes whatever is still pending when the JVM exits normally.
+ */
+final class WriteBehindFlusher implements Runnable {
+    private final AbstractCRUDRepository<?, ?> repository;
+    private final long intervalNanos;
+    private final int maxDirty;
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private int dirty;
+    private boolean stopped;
+
+    WriteBehindFlusher(AbstractCRUDRepository<?, ?> repository, long intervalMillis, int maxDirty) {
+        this.repository = repository;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.maxDirty = maxDirty;
+        String name = "write-behind-" + repository.getClass().getSimpleName();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+        shutdownHook = new Thread(repository::flush, name + "-shutdown");
+    }
+
+    void start() {
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        thread.start();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        notifyAll();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        }
+        catch (IllegalStateException ise) {
+            // the JVM is already shutting down and the hook is running
+        }
+    }
+
+    synchronized void dirtied() {
+        if (++dirty == 1 || dirty >= maxDirty) {
+            notifyAll();
+        }
+    }
+
+    synchronized void flushed() { dirty = 0; }
+
+    @Override
+    public void run() {
+        while (awaitFlush()) {
+            repository.flush();
+        }
+    }
+
+    /**
+     * @return false once the flusher was stopped
+     */
+    private synchronized boolean awaitFlush() {
+        try {
+            while (!stopped && dirty == 0) {
+                wait();
+            }
+            long end = System.nanoTime() + intervalNanos;
+            long remaining;
+            while (!stopped && dirty < maxDirty && (remaining = end - System.nanoTime()) > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            }
+        }
+        catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !stopped;
+    }
+}
@@ -0,0 +1,170 @@
+package service;
+
+import domain.Nota;
+import domain.Student;
+import repository.NotaXMLRepository;
+import repository.RepositoryListener;
+import repository.StudentXMLRepository;
+import repository.UnitOfWork;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Grade aggregates by student, by homework and by group, kept up to date by listening to the repositories instead of
+ * being computed from all the grades on every query. Saving or deleting a grade costs O(log n) (the extremes are kept
+ * in a sorted multiset, so that they survive deletes); a query only copies the aggregate.
+ *
+ * The aggregate of a group is the sum of the aggregates of its students: when a student changes group, or is deleted,
+ * its own aggregate is moved, without reading its grades again. Grades of a student that does not exist (yet) count
+ * for the student and the homework, but for no group.
+ */
+public class GradeStatistics {
+    private final Map<String, Stats> byStudent = new HashMap<>();
+    private final Map<String, Stats> byTema = new HashMap<>();
+    private final Map<Integer, Stats> byGrupa = new HashMap<>();
+    private final Map<String, Integer> grupaOfStudent = new HashMap<>();
+
+    /**
+     * Running aggregates of a multiset of grades.
+     */
+    private static final class Stats {
+        private int count;
+        private double sum;
+        private final int[] histogram = new int[GradeSummary.BUCKETS];
+        private final TreeMap<Double, Integer> values = new TreeMap<>();
+
+        private void add(double nota, int times) {
+            count += times;
+            sum += nota * times;
+            histogram[GradeSummary.bucket(nota)] += times;
+            values.merge(nota, times, Integer::sum);
+        }
+
+        private void remove(double nota, int times) {
+            count -= times;
+            sum -= nota * times;
+            histogram[GradeSummary.bucket(nota)] -= times;
+            values.computeIfPresent(nota, (value, n) -> n > times ? n - times : null);
+            if (count == 0) {
+                sum = 0;
+            }
+        }
+
+        private void addAll(Stats other) {
+            other.values.forEach(this::add);
+        }
+
+        private void removeAll(Stats other) {
+            other.values.forEach(this::remove);
+        }
+
+        private GradeSummary summary() {
+            return new GradeSummary(count, sum, count == 0 ? Double.NaN : values.firstKey(),
+                    count == 0 ? Double.NaN : values.lastKey(), histogram);
+        }
+    }
+
+    public GradeStatistics(StudentXMLRepository studentRepo, NotaXMLRepository notaRepo) {
+        UnitOfWork locks = new UnitOfWork().read(studentRepo).read(notaRepo);
+        try {
+            studentRepo.addListener(new RepositoryListener<Student>() {
+                @Override
+                public void entityAdded(Student student) { studentAdded(student); }
+
+                @Override
+                public void entityRemoved(Student student) { studentRemoved(student); }
+
+                @Override
+                public void entitiesCleared() { studentsCleared(); }
+            });
+            notaRepo.addListener(new RepositoryListener<Nota>() {
+                @Override
+                public void entityAdded(Nota nota) { notaChanged(nota, true); }
+
+                @Override
+                public void entityRemoved(Nota nota) { notaChanged(nota, false); }
+
+                @Override
+                public void entitiesCleared() { noteCleared(); }
+            });
+
+            for (Nota nota : notaRepo.findAll()) {
+                notaChanged(nota, true);
+            }
+            for (Student student : studentRepo.findAll()) {
+                studentAdded(student);
+            }
+        }
+        finally {
+            locks.close();
+        }
+    }
+
+    public synchronized GradeSummary getByStudent(String idStudent) { return summary(byStudent.get(idStudent)); }
+
+    public synchronized GradeSummary getByTema(String idTema) { return summary(byTema.get(idTema)); }
+
+    public synchronized GradeSummary getByGrupa(int grupa) { return summary(byGrupa.get(grupa)); }
+
+    private static GradeSummary summary(Stats stats) {
+        return (stats == null ? new Stats() : stats).summary();
+    }
+
+    private synchronized void notaChanged(Nota nota, boolean added) {
+        String idStudent = nota.getID().getObject1();
+        update(byStudent, idStudent, nota.getNota(), added);
+        update(byTema, nota.getID().getObject2(), nota.getNota(), added);
+        Integer grupa = grupaOfStudent.get(idStudent);
+        if (grupa != null) {
+            update(byGrupa, grupa, nota.getNota(), added);
+        }
+    }
+
+    private static <K> void update(Map<K, Stats> aggregates, K key, double nota, boolean added) {
+        if (added) {
+            aggregates.computeIfAbsent(key, k -> new Stats()).add(nota, 1);
+        }
+        else {
+            Stats stats = aggregates.get(key);
+            if (stats != null) {
+                stats.remove(nota, 1);
+                if (stats.count == 0) {
+                    aggregates.remove(key);
+                }
+            }
+        }
+    }
+
+    private synchronized void studentAdded(Student student) {
+        grupaOfStudent.put(student.getID(), student.getGrupa());
+        Stats own = byStudent.get(student.getID());
+        if (own != null) {
+            byGrupa.computeIfAbsent(student.getGrupa(), k -> new Stats()).addAll(own);
+        }
+    }
+
+    private synchronized void studentRemoved(Student student) {
+        Integer grupa = grupaOfStudent.remove(student.getID());
+        Stats own = byStudent.get(student.getID());
+        if (grupa != null && own != null) {
+            Stats stats = byGrupa.get(grupa);
+            stats.removeAll(own);
+            if (stats.count == 0) {
+                byGrupa.remove(grupa);
+            }
+        }
+    }
+
+    private synchronized void studentsCleared() {
+        grupaOfStudent.clear();
+        byGrupa.clear();
+    }
+
+    private synchronized void noteCleared() {
+        byStudent.clear();
+        byTema.clear();
+        byGrupa.clear();
+    }
+}
@@ -0,0 +1,56 @@
+package service;
+
+import java.util.Arrays;
+
+/**
+ * Aggregates of a set of grades, as returned by the Service: count, sum, average, extremes and the number of grades
+ * in each of the histogram buckets [0, 1), [1, 2), ..., [9, 10), [10].
+ */
+public class GradeSummary {
+    public static final int BUCKETS = 11;
+
+    private final int count;
+    private final double sum;
+    private final double min;
+    private final double max;
+    private final int[] histogram;
+
+    public GradeSummary(int count, double sum, double min, double max, int[] histogram) {
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+        this.histogram = histogram.clone();
+    }
+
+    public int getCount() { return count; }
+
+    public double getSum() { return sum; }
+
+    /**
+     * @return the average of the grades, or NaN if there is none
+     */
+    public double getMedie() { return count == 0 ? Double.NaN : sum / count; }
+
+    /**
+     * @return the lowest grade, or NaN if there is none
+     */
+    public double getMin() { return min; }
+
+    /**
+     * @return the highest grade, or NaN if there is none
+     */
+    public double getMax() { return max; }
+
+    public int[] getHistogram() { return histogram.clone(); }
+
+    static int bucket(double nota) {
+        return (int) Math.max(0, Math.min(BUCKETS - 1, Math.floor(nota)));
+    }
+
+    @Override
+    public String toString() {
+        return "GradeSummary{count=" + count + ", medie=" + getMedie() + ", min=" + min + ", max=" + max
+                + ", histogram=" + Arrays.toString(histogram) + "}";
+    }
+}
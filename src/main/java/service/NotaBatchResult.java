@@ -0,0 +1,33 @@
+package service;
+
+import domain.Nota;
+
+/**
+ * Outcome of one grade of a batch given to Service.saveNotaBatch.
+ */
+public class NotaBatchResult {
+    private final Nota nota;
+    private final String eroare;
+
+    public NotaBatchResult(Nota nota, String eroare) {
+        this.nota = nota;
+        this.eroare = eroare;
+    }
+
+    /**
+     * @return the grade as it was saved (after the late penalty) or, if it was rejected, as it was submitted
+     */
+    public Nota getNota() { return nota; }
+
+    /**
+     * @return the reason the grade was rejected, or null if it was saved
+     */
+    public String getEroare() { return eroare; }
+
+    public boolean isSaved() { return eroare == null; }
+
+    @Override
+    public String toString() {
+        return "NotaBatchResult{nota=" + nota + ", eroare='" + eroare + "'}";
+    }
+}
@@ -0,0 +1,284 @@
+package service;
+
+import domain.Nota;
+import domain.Student;
+import domain.Tema;
+import metrics.StudentReportEvent;
+import repository.NotaXMLRepository;
+import repository.RepositoryListener;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import repository.UnitOfWork;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Writes the grade report of a student, "<nume>.txt", from the repositories of the service: the grades come from the
+ * index by student and the homeworks by ID, so the cost depends only on the grades of that student.
+ *
+ * The generator listens to the three repositories and stamps every change with a generation number: a student is
+ * dirty when its own data, one of its grades or the homework of one of its grades changed after its report was
+ * written. A report that is not dirty, and still exists, is not written again. The written reports are kept by file,
+ * since students who share a name share the file as well: the file is up to date only for the student who wrote it last.
+ */
+public class ReportGenerator {
+    private final StudentXMLRepository studentRepo;
+    private final TemaXMLRepository temaRepo;
+    private final NotaXMLRepository notaRepo;
+
+    private final AtomicLong generation = new AtomicLong();
+    private final Map<String, Long> studentChanges = new ConcurrentHashMap<>();
+    private final Map<String, Long> temaChanges = new ConcurrentHashMap<>();
+    private volatile long lastReload;
+    private final Map<Path, Report> reports = new ConcurrentHashMap<>();
+
+    private static final class Report {
+        private final String idStudent;
+        private final long generation;
+
+        private Report(String idStudent, long generation) {
+            this.idStudent = idStudent;
+            this.generation = generation;
+        }
+    }
+
+    public ReportGenerator(StudentXMLRepository studentRepo, TemaXMLRepository temaRepo, NotaXMLRepository notaRepo) {
+        this.studentRepo = studentRepo;
+        this.temaRepo = temaRepo;
+        this.notaRepo = notaRepo;
+
+        studentRepo.addListener(new ChangeListener<>(student -> studentChanges.put(student.getID(), generation.incrementAndGet())));
+        temaRepo.addListener(new ChangeListener<>(tema -> temaChanges.put(tema.getID(), generation.incrementAndGet())));
+        notaRepo.addListener(new ChangeListener<>(nota -> studentChanges.put(nota.getID().getObject1(), generation.incrementAndGet())));
+    }
+
+    private final class ChangeListener<E> implements RepositoryListener<E> {
+        private final Consumer<E> change;
+
+        private ChangeListener(Consumer<E> change) {
+            this.change = change;
+        }
+
+        @Override
+        public void entityAdded(E entity) { change.accept(entity); }
+
+        @Override
+        public void entityRemoved(E entity) { change.accept(entity); }
+
+        @Override
+        public void entitiesCleared() { lastReload = generation.incrementAndGet(); }
+    }
+
+    /**
+     * Writes the report of the student into the working directory, unless it is up to date.
+     * @return true if the report was written, false if it was up to date or the student does not exist
+     */
+    public boolean writeReport(String idStudent) {
+        return writeReport(idStudent, Path.of(""));
+    }
+
+    /**
+     * Writes the report of the student into the given directory, unless it is up to date.
+     * @return true if the report was written, false if it was up to date or the student does not exist
+     */
+    public boolean writeReport(String idStudent, Path directory) {
+        StudentReportEvent event = new StudentReportEvent();
+        event.begin();
+        ReportData data;
+        UnitOfWork locks = new UnitOfWork().read(studentRepo).read(temaRepo).read(notaRepo);
+        try {
+            Student student = studentRepo.findOne(idStudent);
+            if (student == null) {
+                return false;
+            }
+
+            Path file = directory.resolve(student.getNume() + ".txt");
+            List<Nota> note = notaRepo.findByStudent(idStudent);
+            if (isUpToDate(idStudent, file, note)) {
+                commit(event, idStudent, file, note.size(), false);
+                return false;
+            }
+            data = collect(idStudent, file, note);
+        }
+        finally {
+            locks.close();
+        }
+        boolean written = write(data);
+        commit(event, idStudent, data.file, data.note.size(), written);
+        return written;
+    }
+
+    private static void commit(StudentReportEvent event, String idStudent, Path file, int grades, boolean written) {
+        if (event.shouldCommit()) {
+            event.idStudent = idStudent;
+            event.file = file.toString();
+            event.grades = grades;
+            event.written = written;
+            event.bytes = written ? file.toFile().length() : 0;
+            event.commit();
+        }
+    }
+
+    /**
+     * Writes the reports of all the students into the given directory, on at most `parallelism` threads. The grades
+     * of every student are taken from the index in one pass, under the read locks, so the reports are consistent with
+     * each other and the repositories are only blocked while that pass lasts; the files are written afterwards.
+     * The files are the same, byte for byte, as those written by writeReport for each student in turn: when two
+     * students share a name, the report of the student found last is kept, as the sequential calls would leave it.
+     * @return the number of reports written
+     */
+    public int writeAllReports(Path directory, int parallelism) {
+        return writeAllReports(directory, parallelism, ReportProgress.NONE).getWritten();
+    }
+
+    /**
+     * Same as writeAllReports(directory, parallelism), telling progress about every report handled.
+     * @return the reports written, out of how many, and the time taken, from the pass under the locks to the last file
+     */
+    public ReportsResult writeAllReports(Path directory, int parallelism, ReportProgress progress) {
+        long start = System.nanoTime();
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Paralelismul trebuie sa fie pozitiv!\n");
+        }
+        List<ReportData> reportsToWrite = new ArrayList<>();
+        UnitOfWork locks = new UnitOfWork().read(studentRepo).read(temaRepo).read(notaRepo);
+        try {
+            Map<Path, String> byFile = new LinkedHashMap<>();
+            for (Student student : studentRepo.findAll()) {
+                byFile.put(directory.resolve(student.getNume() + ".txt"), student.getID());
+            }
+            for (Map.Entry<Path, String> entry : byFile.entrySet()) {
+                reportsToWrite.add(collect(entry.getValue(), entry.getKey(), notaRepo.findByStudent(entry.getValue())));
+            }
+        }
+        finally {
+            locks.close();
+        }
+
+        int total = reportsToWrite.size();
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(parallelism * 4), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            for (ReportData data : reportsToWrite) {
+                executor.execute(() -> {
+                    StudentReportEvent event = new StudentReportEvent();
+                    event.begin();
+                    boolean reportWritten = write(data);
+                    commit(event, data.idStudent, data.file, data.note.size(), reportWritten);
+                    if (reportWritten) {
+                        written.incrementAndGet();
+                    }
+                    progress.reportDone(done.incrementAndGet(), total);
+                });
+            }
+        }
+        finally {
+            executor.shutdown();
+            awaitTermination(executor);
+        }
+        return new ReportsResult(written.get(), total, System.nanoTime() - start);
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    break;
+                }
+            } catch (InterruptedException ie) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Everything a report shows, taken under the read locks; the deadlines are resolved here, in the order of the grades.
+     */
+    private static final class ReportData {
+        private final String idStudent;
+        private final Path file;
+        private final List<Nota> note;
+        private final int[] deadlines;
+        private final long generation;
+
+        private ReportData(String idStudent, Path file, List<Nota> note, int[] deadlines, long generation) {
+            this.idStudent = idStudent;
+            this.file = file;
+            this.note = note;
+            this.deadlines = deadlines;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * Grades whose homework no longer exists (left behind by an external edit of the files) are left out of the report.
+     */
+    private ReportData collect(String idStudent, Path file, List<Nota> note) {
+        List<Nota> reported = new ArrayList<>(note.size());
+        int[] deadlines = new int[note.size()];
+        for (Nota nota : note) {
+            Tema tema = temaRepo.findOne(nota.getID().getObject2());
+            if (tema == null) {
+                continue;
+            }
+            deadlines[reported.size()] = tema.getDeadline();
+            reported.add(nota);
+        }
+        return new ReportData(idStudent, file, reported, deadlines, generation.get());
+    }
+
+    private boolean write(ReportData data) {
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(data.file.toFile(), false))) {
+            for (int i = 0; i < data.note.size(); i++) {
+                Nota nota = data.note.get(i);
+                bw.write("Tema: " + nota.getID().getObject2() + "\n");
+                bw.write("Nota: " + nota.getNota() + "\n");
+                bw.write("Predata in saptamana: " + nota.getSaptamanaPredare() + "\n");
+                bw.write("Deadline: " + data.deadlines[i] + "\n");
+                bw.write("Feedback: " + nota.getFeedback() + "\n\n");
+            }
+        } catch (IOException ioe) {
+            ioe.printStackTrace();
+            reports.remove(data.file);
+            return false;
+        }
+        reports.put(data.file, new Report(data.idStudent, data.generation));
+        return true;
+    }
+
+    private boolean isUpToDate(String idStudent, Path file, List<Nota> note) {
+        Report report = reports.get(file);
+        if (report == null || !report.idStudent.equals(idStudent) || lastReload > report.generation
+                || studentChanges.getOrDefault(idStudent, 0L) > report.generation || !Files.exists(file)) {
+            return false;
+        }
+        for (Nota nota : note) {
+            if (temaChanges.getOrDefault(nota.getID().getObject2(), 0L) > report.generation) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
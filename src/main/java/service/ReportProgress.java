@@ -0,0 +1,15 @@
+package service;
+
+/**
+ * Told about every report handled by ReportGenerator.writeAllReports, whether or not it could be written; it is called
+ * from the threads of the writer, so it must be thread safe.
+ */
+public interface ReportProgress {
+    ReportProgress NONE = (done, total) -> { };
+
+    /**
+     * @param done the number of reports handled so far, including this one
+     * @param total the number of reports of the run
+     */
+    void reportDone(int done, int total);
+}
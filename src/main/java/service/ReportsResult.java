@@ -0,0 +1,43 @@
+package service;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outcome of ReportGenerator.writeAllReports: how many reports were written out of how many, and how long it took.
+ */
+public class ReportsResult {
+    private final int written;
+    private final int total;
+    private final long elapsedNanos;
+
+    public ReportsResult(int written, int total, long elapsedNanos) {
+        this.written = written;
+        this.total = total;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return the number of reports written; the others failed with an IOException
+     */
+    public int getWritten() { return written; }
+
+    public int getTotal() { return total; }
+
+    public long getElapsedNanos() { return elapsedNanos; }
+
+    /**
+     * @return the reports handled per second, or 0 if nothing was handled
+     */
+    public double getRapoartePeSecunda() {
+        if (total == 0 || elapsedNanos <= 0) {
+            return 0;
+        }
+        return total * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportsResult{written=" + written + ", total=" + total + ", elapsedMs="
+                + TimeUnit.NANOSECONDS.toMillis(elapsedNanos) + ", rapoartePeSecunda=" + getRapoartePeSecunda() + "}";
+    }
+}
@@ -7,23 +7,51 @@ import domain.Tema;
 import exceptions.AlreadyExistingEntityException;
 import exceptions.GradeNonExistentStudentOrHomeworkException;
 import exceptions.ValidationException;
+import metrics.LatencyHistogram;
+import metrics.Metrics;
+import metrics.SaveNotaEvent;
 import repository.NotaXMLRepository;
 import repository.StudentXMLRepository;
 import repository.TemaXMLRepository;
+import repository.UnitOfWork;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.temporal.WeekFields;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public class Service {
+    private static final LatencyHistogram SAVE_STUDENT_TIME = Metrics.timer("Service.saveStudent");
+    private static final LatencyHistogram SAVE_TEMA_TIME = Metrics.timer("Service.saveTema");
+    private static final LatencyHistogram SAVE_NOTA_TIME = Metrics.timer("Service.saveNota");
+    private static final LatencyHistogram SAVE_NOTA_BATCH_TIME = Metrics.timer("Service.saveNotaBatch");
+    private static final LatencyHistogram DELETE_STUDENT_TIME = Metrics.timer("Service.deleteStudent");
+    private static final LatencyHistogram DELETE_TEMA_TIME = Metrics.timer("Service.deleteTema");
+    private static final LatencyHistogram UPDATE_STUDENT_TIME = Metrics.timer("Service.updateStudent");
+    private static final LatencyHistogram UPDATE_TEMA_TIME = Metrics.timer("Service.updateTema");
+    private static final LatencyHistogram CREATE_STUDENT_FILE_TIME = Metrics.timer("Service.createStudentFile");
+    private static final LatencyHistogram GENERATE_ALL_REPORTS_TIME = Metrics.timer("Service.generateAllReports");
+
     private StudentXMLRepository studentXmlRepo;
     private TemaXMLRepository temaXmlRepo;
     private NotaXMLRepository notaXmlRepo;
+    private ReportGenerator reports;
+    private GradeStatistics statistics;
 
     public Service(StudentXMLRepository studentXmlRepo, TemaXMLRepository temaXmlRepo, NotaXMLRepository notaXmlRepo) {
         this.studentXmlRepo = studentXmlRepo;
         this.temaXmlRepo = temaXmlRepo;
         this.notaXmlRepo = notaXmlRepo;
+        this.reports = new ReportGenerator(studentXmlRepo, temaXmlRepo, notaXmlRepo);
+        this.statistics = new GradeStatistics(studentXmlRepo, notaXmlRepo);
     }
 
     public Iterable<Student> findAllStudents() { return studentXmlRepo.findAll(); }
@@ -32,67 +60,256 @@ public class Service {
 
     public Iterable<Nota> findAllNote() { return notaXmlRepo.findAll(); }
 
+    public Iterable<Nota> findNoteByStudent(String idStudent) { return notaXmlRepo.findByStudent(idStudent); }
+
+    public Iterable<Nota> findNoteByTema(String idTema) { return notaXmlRepo.findByTema(idTema); }
+
+    public Iterable<Student> findStudentsByGrupa(int grupa) { return studentXmlRepo.findByGrupa(grupa); }
+
+    public Iterable<Nota> findNoteByGrupa(int grupa) {
+        List<Nota> note = new ArrayList<>();
+        for (Student student : studentXmlRepo.findByGrupa(grupa)) {
+            note.addAll(notaXmlRepo.findByStudent(student.getID()));
+        }
+        return note;
+    }
+
+    /**
+     * @return the count, average, extremes and histogram of the grades of the student, maintained as grades change
+     */
+    public GradeSummary getNoteSummaryByStudent(String idStudent) { return statistics.getByStudent(idStudent); }
+
+    public GradeSummary getNoteSummaryByTema(String idTema) { return statistics.getByTema(idTema); }
+
+    public GradeSummary getNoteSummaryByGrupa(int grupa) { return statistics.getByGrupa(grupa); }
+
     public void saveStudent(String id, String nume, int grupa) throws ValidationException, AlreadyExistingEntityException {
-        studentXmlRepo.save(new Student(id, nume, grupa));
+        long start = System.nanoTime();
+        try {
+            studentXmlRepo.save(new Student(id, nume, grupa));
+        }
+        finally {
+            SAVE_STUDENT_TIME.recordSince(start);
+        }
     }
 
     public void saveTema(String id, String descriere, int deadline, int startline) throws ValidationException, AlreadyExistingEntityException {
-        temaXmlRepo.save(new Tema(id, descriere, deadline, startline));
+        long start = System.nanoTime();
+        try {
+            temaXmlRepo.save(new Tema(id, descriere, deadline, startline));
+        }
+        finally {
+            SAVE_TEMA_TIME.recordSince(start);
+        }
     }
 
     public void saveNota(String idStudent, String idTema, double valNota, int predata, String feedback) throws ValidationException, AlreadyExistingEntityException, GradeNonExistentStudentOrHomeworkException {
-        if (studentXmlRepo.findOne(idStudent) == null || temaXmlRepo.findOne(idTema) == null) {
-            throw new GradeNonExistentStudentOrHomeworkException("Inexistent student or homework!\n");
+        long start = System.nanoTime();
+        SaveNotaEvent event = new SaveNotaEvent();
+        event.begin();
+        try (UnitOfWork unitOfWork = new UnitOfWork().read(studentXmlRepo).read(temaXmlRepo).write(notaXmlRepo)) {
+            Tema tema = temaXmlRepo.findOne(idTema);
+            if (studentXmlRepo.findOne(idStudent) == null || tema == null) {
+                throw new GradeNonExistentStudentOrHomeworkException("Inexistent student or homework!\n");
+            }
+
+            double notaFinala = calculeazaNota(valNota, predata, tema.getDeadline());
+            event.deadline = tema.getDeadline();
+            event.notaFinala = notaFinala;
+            notaXmlRepo.save(new Nota(new Pair(idStudent, idTema), notaFinala, predata, feedback, valNota));
+            unitOfWork.commit();
+            event.salvata = true;
+        }
+        catch (RuntimeException re) {
+            event.eroare = re.getMessage();
+            throw re;
         }
-        else {
-            int deadline = temaXmlRepo.findOne(idTema).getDeadline();
+        finally {
+            SAVE_NOTA_TIME.recordSince(start);
+            commit(event, idStudent, idTema, valNota, predata);
+        }
+    }
 
-            if (predata - deadline > 2) {
-                valNota =  1;
-            } else {
-                valNota =  valNota - 2.5 * (predata - deadline);
+    private static void commit(SaveNotaEvent event, String idStudent, String idTema, double valNota, int predata) {
+        if (event.shouldCommit()) {
+            event.idStudent = idStudent;
+            event.idTema = idTema;
+            event.notaInitiala = valNota;
+            event.saptamanaPredare = predata;
+            if (event.salvata) {
+                event.saptamaniIntarziere = Math.max(0, predata - event.deadline);
+                event.penalizata = event.notaFinala < valNota;
+            }
+            event.commit();
+        }
+    }
+
+    /**
+     * Saves a whole batch of grades with a single write of the grades file. Every grade carries the raw value, as
+     * given to saveNota; the late penalty is applied here.
+     * @return one result per grade, in the order of the batch
+     */
+    public List<NotaBatchResult> saveNotaBatch(Collection<Nota> note) {
+        long start = System.nanoTime();
+        try (UnitOfWork unitOfWork = new UnitOfWork().read(studentXmlRepo).read(temaXmlRepo).write(notaXmlRepo)) {
+            return saveNotaBatch(note, unitOfWork);
+        }
+        finally {
+            SAVE_NOTA_BATCH_TIME.recordSince(start);
+        }
+    }
+
+    private List<NotaBatchResult> saveNotaBatch(Collection<Nota> note, UnitOfWork unitOfWork) {
+        Map<String, Boolean> studentExists = new HashMap<>();
+        Map<String, Tema> teme = new HashMap<>();
+        List<Nota> accepted = new ArrayList<>(note.size());
+        NotaBatchResult[] results = new NotaBatchResult[note.size()];
+        int[] acceptedPositions = new int[note.size()];
+
+        int position = 0;
+        for (Nota nota : note) {
+            String idStudent = nota.getID().getObject1();
+            String idTema = nota.getID().getObject2();
+            boolean studentFound = studentExists.computeIfAbsent(idStudent, id -> id != null && studentXmlRepo.findOne(id) != null);
+            Tema tema = teme.computeIfAbsent(idTema, id -> id == null ? null : temaXmlRepo.findOne(id));
+
+            if (!studentFound || tema == null) {
+                results[position] = new NotaBatchResult(nota, "Inexistent student or homework!\n");
             }
+            else {
+                acceptedPositions[accepted.size()] = position;
+                accepted.add(new Nota(nota.getID(), calculeazaNota(nota.getNota(), nota.getSaptamanaPredare(), tema.getDeadline()),
+                        nota.getSaptamanaPredare(), nota.getFeedback(), nota.getNota()));
+            }
+            position++;
+        }
+
+        List<RuntimeException> errors = notaXmlRepo.saveAll(accepted);
+        for (int i = 0; i < accepted.size(); i++) {
+            RuntimeException error = errors.get(i);
+            results[acceptedPositions[i]] = new NotaBatchResult(accepted.get(i), error == null ? null : error.getMessage());
+        }
+        unitOfWork.commit();
+        return Arrays.asList(results);
+    }
 
-            notaXmlRepo.save(new Nota(new Pair(idStudent, idTema), valNota, predata, feedback));
+    /**
+     * The late penalty: 2.5 points per week after the deadline, or a grade of 1 after more than two weeks; a submission
+     * before the deadline earns the points back. The result is kept within [0, 10], so saveNota and the recomputation
+     * after a deadline change give the same grade. A raw grade outside [0, 10] is returned as it is, for the validator
+     * to reject.
+     */
+    private static double calculeazaNota(double valNota, int predata, int deadline) {
+        if (valNota < 0 || valNota > 10) {
+            return valNota;
+        }
+        if (predata - deadline > 2) {
+            return 1;
         }
+        return Math.max(0, Math.min(10, valNota - 2.5 * (predata - deadline)));
     }
 
+    /**
+     * Deletes the student together with its grades, found through the grades index and written to disk at once.
+     */
     public int deleteStudent(String id) {
-        Student result = studentXmlRepo.delete(id);
+        long start = System.nanoTime();
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(studentXmlRepo).write(notaXmlRepo)) {
+            Student result = studentXmlRepo.delete(id);
 
-        if (result == null) {
-            return 0;
+            if (result == null) {
+                return 0;
+            }
+            for (Nota nota : notaXmlRepo.findByStudent(id)) {
+                notaXmlRepo.delete(nota.getID());
+            }
+            unitOfWork.commit();
+            return 1;
+        }
+        finally {
+            DELETE_STUDENT_TIME.recordSince(start);
         }
-        return 1;
     }
 
+    /**
+     * Deletes the homework together with its grades, found through the grades index and written to disk at once.
+     */
     public int deleteTema(String id) {
-        Tema result = temaXmlRepo.delete(id);
+        long start = System.nanoTime();
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(temaXmlRepo).write(notaXmlRepo)) {
+            Tema result = temaXmlRepo.delete(id);
 
-        if (result == null) {
-            return 0;
+            if (result == null) {
+                return 0;
+            }
+            for (Nota nota : notaXmlRepo.findByTema(id)) {
+                notaXmlRepo.delete(nota.getID());
+            }
+            unitOfWork.commit();
+            return 1;
+        }
+        finally {
+            DELETE_TEMA_TIME.recordSince(start);
         }
-        return 1;
     }
 
     public int updateStudent(String id, String numeNou, int grupaNoua) {
-        Student studentNou = new Student(id, numeNou, grupaNoua);
-        Student result = studentXmlRepo.update(studentNou);
+        long start = System.nanoTime();
+        try {
+            Student studentNou = new Student(id, numeNou, grupaNoua);
+            Student result = studentXmlRepo.update(studentNou);
 
-        if (result == null) {
-            return 0;
+            if (result == null) {
+                return 0;
+            }
+            return 1;
+        }
+        finally {
+            UPDATE_STUDENT_TIME.recordSince(start);
         }
-        return 1;
     }
 
+    /**
+     * Updates the homework; when its deadline moves, its grades are recomputed and written to disk at once.
+     */
     public int updateTema(String id, String descriereNoua, int deadlineNou, int startlineNou) {
-        Tema temaNoua = new Tema(id, descriereNoua, deadlineNou, startlineNou);
-        Tema result = temaXmlRepo.update(temaNoua);
+        long start = System.nanoTime();
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(temaXmlRepo).write(notaXmlRepo)) {
+            Tema temaNoua = new Tema(id, descriereNoua, deadlineNou, startlineNou);
+            Tema result = temaXmlRepo.update(temaNoua);
+
+            if (result == null) {
+                return 0;
+            }
+            if (result.getDeadline() != deadlineNou) {
+                recalculeazaNote(id, deadlineNou);
+            }
+            unitOfWork.commit();
+            return 1;
+        }
+        finally {
+            UPDATE_TEMA_TIME.recordSince(start);
+        }
+    }
 
-        if (result == null) {
-            return 0;
+    /**
+     * Applies the late penalty again to the grades of the homework, found through the grades index, from their
+     * initial values, by the same rule as saveNota; grades saved without an initial value are left as they are.
+     * @return the number of grades that changed
+     */
+    private int recalculeazaNote(String idTema, int deadline) {
+        int changed = 0;
+        for (Nota nota : notaXmlRepo.findByTema(idTema)) {
+            if (nota.getNotaInitiala() == null) {
+                continue;
+            }
+            double valNota = calculeazaNota(nota.getNotaInitiala(), nota.getSaptamanaPredare(), deadline);
+            if (valNota != nota.getNota() && notaXmlRepo.update(new Nota(nota.getID(), valNota,
+                    nota.getSaptamanaPredare(), nota.getFeedback(), nota.getNotaInitiala())) != null) {
+                changed++;
+            }
         }
-        return 1;
+        return changed;
     }
 
     public int extendDeadline(String id, int noWeeks) {
@@ -117,9 +334,44 @@ public class Service {
         return 0;
     }
 
+    /**
+     * Writes the grade report of the student, "<nume>.txt", unless nothing in it changed since it was last written.
+     */
     public void createStudentFile(String idStudent, String idTema) {
-        Nota nota = notaXmlRepo.findOne(new Pair(idStudent, idTema));
+        long start = System.nanoTime();
+        try {
+            reports.writeReport(idStudent);
+        }
+        finally {
+            CREATE_STUDENT_FILE_TIME.recordSince(start);
+        }
+    }
+
+    /**
+     * Writes the grade reports of all the students into outDir, in parallel.
+     * @return the number of reports written
+     */
+    public int generateAllReports(Path outDir, int parallelism) {
+        return generateAllReports(outDir, parallelism, ReportProgress.NONE).getWritten();
+    }
 
-        notaXmlRepo.createFile(nota);
+    /**
+     * Writes the grade reports of all the students into outDir, in parallel, telling progress about every report.
+     * @return the reports written, out of how many, the time taken and the throughput
+     */
+    public ReportsResult generateAllReports(Path outDir, int parallelism, ReportProgress progress) {
+        long start = System.nanoTime();
+        try {
+            try {
+                Files.createDirectories(outDir);
+            } catch (IOException ioe) {
+                ioe.printStackTrace();
+                return new ReportsResult(0, 0, System.nanoTime() - start);
+            }
+            return reports.writeAllReports(outDir, parallelism, progress);
+        }
+        finally {
+            GENERATE_ALL_REPORTS_TIME.recordSince(start);
+        }
     }
 }
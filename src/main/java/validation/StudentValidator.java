@@ -3,6 +3,9 @@ import domain.Student;
 import exceptions.ValidationException;
 
 public class StudentValidator implements Validator<Student> {
+    public static final int GRUPA_MINIMA = 111;
+    public static final int GRUPA_MAXIMA = 937;
+
     public void validate(Student student) throws ValidationException {
         if (student.getID() == null || student.getID().equals("")) {
             throw new ValidationException("ID invalid!\n");
@@ -10,7 +13,7 @@ public class StudentValidator implements Validator<Student> {
         if (student.getNume() == null || student.getNume().equals("")) {
             throw new ValidationException("Nume invalid!\n");
         }
-        if (student.getGrupa() <= 110 || student.getGrupa() >= 938) {
+        if (student.getGrupa() < GRUPA_MINIMA || student.getGrupa() > GRUPA_MAXIMA) {
             throw new ValidationException("Grupa invalida!\n");
         }
     }
@@ -0,0 +1,95 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.NotaBatchResult;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchGradeTest {
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        StudentXMLRepository fileRepository1 = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository fileRepository2 = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        NotaXMLRepository fileRepository3 = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(fileRepository1, fileRepository2, fileRepository3);
+
+        service.saveStudent("1", "ana", 221);
+        service.saveStudent("2", "maria", 221);
+        service.saveTema("1", "DESCRIPTION", 12, 1);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+    }
+
+    @Test
+    public void saveNotaBatch_MixedBatch_PerItemResults() {
+        List<NotaBatchResult> results = service.saveNotaBatch(Arrays.asList(
+                new Nota(new Pair<>("1", "1"), 6, 11, "SLAB"),
+                new Nota(new Pair<>("3", "1"), 9, 12, "BINE"),
+                new Nota(new Pair<>("2", "1"), 12, 12, "PREA MULT"),
+                new Nota(new Pair<>("1", "1"), 7, 12, "DUBLURA"),
+                new Nota(new Pair<>("2", "1"), 9, 15, "INTARZIAT")));
+
+        assertEquals(5, results.size());
+        assertTrue(results.get(0).isSaved());
+        assertEquals(8.5, results.get(0).getNota().getNota(), 0.01);
+        assertFalse(results.get(1).isSaved());
+        assertFalse(results.get(2).isSaved());
+        assertFalse(results.get(3).isSaved());
+        assertTrue(results.get(4).isSaved());
+        assertEquals(1, results.get(4).getNota().getNota(), 0.01);
+
+        NotaXMLRepository gradeRepo = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        ArrayList<Nota> gradeList = new ArrayList<>();
+        gradeRepo.findAll().forEach(gradeList::add);
+        assertEquals(2, gradeList.size());
+    }
+
+    @Test
+    public void saveNotaBatch_LargeBatch_AllSaved() {
+        List<Nota> note = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            service.saveStudent("s" + i, "student " + i, 222);
+            service.saveTema("t" + i, "tema " + i, 14, 1);
+        }
+        for (int i = 0; i < 10_000; i++) {
+            note.add(new Nota(new Pair<>("s" + i / 100, "t" + i % 100), 10, 14, "OK"));
+        }
+
+        List<NotaBatchResult> results = service.saveNotaBatch(note);
+
+        assertTrue(results.stream().allMatch(NotaBatchResult::isSaved));
+        NotaXMLRepository gradeRepo = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(100, gradeRepo.findByStudent("s7").size());
+        assertEquals(100, gradeRepo.findByTema("t7").size());
+    }
+}
@@ -0,0 +1,229 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import generator.DatasetGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.BinaryConverter;
+import repository.NotaBinaryRepository;
+import repository.NotaXMLRepository;
+import repository.StudentBinaryRepository;
+import repository.TemaBinaryRepository;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BinaryRepositoryTest {
+    private static final String GRADES_TEST_BIN_FILE = "grade_test.bin";
+    private static final String STUDENT_TEST_BIN_FILE = "student_test.bin";
+
+    private NotaBinaryRepository gradeRepository;
+
+    @Before
+    public void setUp() {
+        gradeRepository = new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE);
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9.5, 7, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("2", "1"), 7, 7, null));
+    }
+
+    @After
+    public void tearDown() {
+        new File(GRADES_TEST_BIN_FILE).delete();
+        new File(STUDENT_TEST_BIN_FILE).delete();
+    }
+
+    private static int count(Iterable<?> entities) {
+        int count = 0;
+        for (Object ignored : entities) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void reload_AfterSaveUpdateDelete_SameEntities() {
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "FOARTE BINE"));
+        gradeRepository.delete(new Pair<>("1", "2"));
+
+        NotaBinaryRepository reloaded = new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE);
+
+        assertEquals(2, count(reloaded.findAll()));
+        assertEquals(10, reloaded.findOne(new Pair<>("1", "1")).getNota(), 0.001);
+        assertEquals("FOARTE BINE", reloaded.findOne(new Pair<>("1", "1")).getFeedback());
+        assertNull(reloaded.findOne(new Pair<>("1", "2")));
+        assertNull(reloaded.findOne(new Pair<>("2", "1")).getFeedback());
+    }
+
+    @Test
+    public void reload_NotaInitiala_KeptAndOlderRecordsWithout() {
+        gradeRepository.save(new Nota(new Pair<>("3", "1"), 0, 12, "TARZIU", 9.0));
+        gradeRepository.update(new Nota(new Pair<>("1", "2"), 7, 8, "BINE", 7.0));
+
+        NotaBinaryRepository reloaded = new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE);
+
+        assertEquals(9.0, reloaded.findOne(new Pair<>("3", "1")).getNotaInitiala(), 0);
+        assertEquals("TARZIU", reloaded.findOne(new Pair<>("3", "1")).getFeedback());
+        assertEquals(7.0, reloaded.findOne(new Pair<>("1", "2")).getNotaInitiala(), 0);
+        assertNull(reloaded.findOne(new Pair<>("1", "1")).getNotaInitiala());
+    }
+
+    @Test
+    public void reload_TornLastRecord_Dropped() throws IOException {
+        long length = new File(GRADES_TEST_BIN_FILE).length();
+        gradeRepository.save(new Nota(new Pair<>("3", "1"), 6, 7, "OK"));
+        try (RandomAccessFile file = new RandomAccessFile(GRADES_TEST_BIN_FILE, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        NotaBinaryRepository reloaded = new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE);
+
+        assertEquals(3, count(reloaded.findAll()));
+        assertNull(reloaded.findOne(new Pair<>("3", "1")));
+        reloaded.save(new Nota(new Pair<>("3", "1"), 6, 7, "OK"));
+        assertEquals(4, count(new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE).findAll()));
+        assertTrue(new File(GRADES_TEST_BIN_FILE).length() > length);
+    }
+
+    @Test
+    public void reload_CorruptedRecord_RecordsAfterItDropped() throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(GRADES_TEST_BIN_FILE, "rw")) {
+            file.seek(file.length() - 6);
+            file.write(file.read() ^ 0x55);
+        }
+
+        NotaBinaryRepository reloaded = new NotaBinaryRepository(new NotaValidator(), GRADES_TEST_BIN_FILE);
+
+        assertEquals(2, count(reloaded.findAll()));
+        assertNull(reloaded.findOne(new Pair<>("2", "1")));
+    }
+
+    @Test
+    public void reload_CorruptedRecordInTheMiddle_SkippedAndFileKept() throws IOException {
+        StudentBinaryRepository studentRepository = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+        studentRepository.save(new Student("1", "ana", 221));
+        studentRepository.save(new Student("2", "maria", 222));
+        long corrupted = new File(STUDENT_TEST_BIN_FILE).length() - 6;
+        studentRepository.save(new Student("3", "ion", 223));
+        try (RandomAccessFile file = new RandomAccessFile(STUDENT_TEST_BIN_FILE, "rw")) {
+            file.seek(corrupted);
+            int b = file.read();
+            file.seek(corrupted);
+            file.write(b ^ 0x55);
+        }
+        long length = new File(STUDENT_TEST_BIN_FILE).length();
+
+        StudentBinaryRepository reloaded = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+
+        assertEquals(2, count(reloaded.findAll()));
+        assertNull(reloaded.findOne("2"));
+        assertEquals("ion", reloaded.findOne("3").getNume());
+        assertEquals(length, new File(STUDENT_TEST_BIN_FILE).length());
+        assertEquals(length, new File(STUDENT_TEST_BIN_FILE + ".corrupt").length());
+
+        reloaded.save(new Student("4", "vasile", 224));
+        StudentBinaryRepository again = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+        assertEquals(3, count(again.findAll()));
+        assertEquals("vasile", again.findOne("4").getNume());
+        new File(STUDENT_TEST_BIN_FILE + ".corrupt").delete();
+    }
+
+    @Test
+    public void reload_CorruptedLengthOfTheFirstRecord_LaterRecordsKept() throws IOException {
+        StudentBinaryRepository studentRepository = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+        for (int i = 1; i <= 5; i++) {
+            studentRepository.save(new Student(String.valueOf(i), "student" + i, 220 + i));
+        }
+        flip(STUDENT_TEST_BIN_FILE, 5);
+        long length = new File(STUDENT_TEST_BIN_FILE).length();
+
+        StudentBinaryRepository reloaded = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+
+        assertEquals(4, count(reloaded.findAll()));
+        assertNull(reloaded.findOne("1"));
+        assertEquals("student5", reloaded.findOne("5").getNume());
+        assertEquals(length, new File(STUDENT_TEST_BIN_FILE).length());
+        assertTrue(new File(STUDENT_TEST_BIN_FILE + ".corrupt").delete());
+    }
+
+    @Test
+    public void reload_RemoveOfALostString_CountedAsCorrupt() throws IOException {
+        StudentBinaryRepository studentRepository = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+        studentRepository.save(new Student("1", "ana", 221));
+        studentRepository.save(new Student("2", "maria", 222));
+        studentRepository.delete("1");
+        // the payload of the first record, the string "1"
+        flip(STUDENT_TEST_BIN_FILE, 10);
+
+        StudentBinaryRepository reloaded = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+
+        assertEquals(1, count(reloaded.findAll()));
+        assertEquals("maria", reloaded.findOne("2").getNume());
+        reloaded.save(new Student("3", "ion", 223));
+        assertEquals(2, count(new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE).findAll()));
+        assertTrue(new File(STUDENT_TEST_BIN_FILE + ".corrupt").delete());
+    }
+
+    private static void flip(String fileName, long position) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "rw")) {
+            file.seek(position);
+            int b = file.read();
+            file.seek(position);
+            file.write(b ^ 0x55);
+        }
+    }
+
+    @Test
+    public void compact_ManyUpdates_FileShrinks() {
+        StudentBinaryRepository studentRepository = new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE);
+        studentRepository.save(new Student("1", "ana", 221));
+        for (int grupa = 222; grupa < 300; grupa++) {
+            studentRepository.update(new Student("1", "ana", grupa));
+        }
+        long before = new File(STUDENT_TEST_BIN_FILE).length();
+
+        studentRepository.compact();
+
+        assertTrue(new File(STUDENT_TEST_BIN_FILE).length() < before);
+        assertEquals(299, new StudentBinaryRepository(new StudentValidator(), STUDENT_TEST_BIN_FILE).findOne("1").getGrupa());
+    }
+
+    @Test
+    public void convert_XmlFiles_SameEntitiesSmallerFiles() throws Exception {
+        Path directory = Files.createTempDirectory("binary");
+        try {
+            new DatasetGenerator(3, 300, 10, 8).writeXml(directory);
+            NotaXMLRepository xml = new NotaXMLRepository(new NotaValidator(), directory.resolve("note.xml").toString());
+            Nota first = xml.findAll().iterator().next();
+            xml.update(new Nota(first.getID(), 0, first.getSaptamanaPredare(), first.getFeedback(), 8.5));
+
+            BinaryConverter.convert(directory);
+
+            assertEquals(300, count(new StudentBinaryRepository(new StudentValidator(), directory.resolve("studenti.bin").toString()).findAll()));
+            assertEquals(10, count(new TemaBinaryRepository(new TemaValidator(), directory.resolve("teme.bin").toString()).findAll()));
+            NotaBinaryRepository note = new NotaBinaryRepository(new NotaValidator(), directory.resolve("note.bin").toString());
+            assertEquals(2400, count(note.findAll()));
+            assertEquals(8.5, note.findOne(first.getID()).getNotaInitiala(), 0);
+            assertTrue(Files.size(directory.resolve("note.bin")) * 4 < Files.size(directory.resolve("note.xml")));
+        }
+        finally {
+            for (File file : directory.toFile().listFiles()) {
+                file.delete();
+            }
+            directory.toFile().delete();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CascadeDeleteTest {
+    private NotaXMLRepository gradeRepository;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        StudentXMLRepository studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(studentRepository, temaRepository, gradeRepository);
+
+        List<Nota> note = new ArrayList<>();
+        for (int student = 1; student <= 3; student++) {
+            service.saveStudent(String.valueOf(student), "student" + student, 221);
+        }
+        for (int tema = 1; tema <= 2; tema++) {
+            service.saveTema(String.valueOf(tema), "DESCRIPTION", 12, 1);
+            for (int student = 1; student <= 3; student++) {
+                note.add(new Nota(new Pair<>(String.valueOf(student), String.valueOf(tema)), 9, 12, "BINE"));
+            }
+        }
+        service.saveNotaBatch(note);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+    }
+
+    private static int count(Iterable<Nota> grades) {
+        int count = 0;
+        for (Nota ignored : grades) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void deleteStudent_GradesRemovedAndPersisted() {
+        assertEquals(1, service.deleteStudent("2"));
+
+        assertEquals(4, count(service.findAllNote()));
+        assertEquals(0, gradeRepository.findByStudent("2").size());
+        assertEquals(2, gradeRepository.findByTema("1").size());
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(4, count(reloaded.findAll()));
+        assertNull(reloaded.findOne(new Pair<>("2", "1")));
+    }
+
+    @Test
+    public void deleteTema_Journaled_GradesRemovedAndReplayed() {
+        gradeRepository.enableJournal(100);
+
+        assertEquals(1, service.deleteTema("1"));
+
+        assertEquals(3, count(service.findAllNote()));
+        assertEquals(1, gradeRepository.findByStudent("1").size());
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(3, count(reloaded.findAll()));
+        assertEquals(0, reloaded.findByTema("1").size());
+    }
+
+    @Test
+    public void delete_Inexistent_GradesUntouched() {
+        assertEquals(0, service.deleteStudent("9"));
+        assertEquals(0, service.deleteTema("9"));
+
+        assertEquals(6, count(service.findAllNote()));
+    }
+}
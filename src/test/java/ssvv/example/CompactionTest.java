@@ -0,0 +1,171 @@
+package ssvv.example;
+
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.CompactionScheduler;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import validation.StudentValidator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CompactionTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+    private static final Path JOURNAL = Path.of(TestUtils.STUDENT_TEST_XML_FILE + ".journal");
+    private static final Path OLD_JOURNAL = Path.of(TestUtils.STUDENT_TEST_XML_FILE + ".journal.old");
+
+    private StudentXMLRepository studentRepository;
+    private CompactionScheduler scheduler;
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        studentRepository = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE);
+        studentRepository.enableJournal(1_000_000);
+        scheduler = new CompactionScheduler(1.0, 10, 0);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        scheduler.close();
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        Files.deleteIfExists(JOURNAL);
+        Files.deleteIfExists(OLD_JOURNAL);
+        new File(STUDENT_TEST_TXT_FILE).delete();
+    }
+
+    private static int size(Iterable<Student> students) {
+        ArrayList<Student> studentList = new ArrayList<>();
+        students.forEach(studentList::add);
+        return studentList.size();
+    }
+
+    private static StudentXMLRepository reloaded() {
+        return new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE);
+    }
+
+    private void saveStudents(int from, int to) {
+        for (int student = from; student < to; student++) {
+            studentRepository.save(new Student(String.valueOf(student), "student" + student, 221));
+        }
+    }
+
+    @Test
+    public void xmlJournal_OverThreshold_FoldedIntoTheSnapshot() {
+        scheduler.register(studentRepository);
+        saveStudents(0, 5);
+        assertFalse(scheduler.needsCompaction(studentRepository));
+        assertEquals(0, scheduler.runOnce());
+
+        saveStudents(5, 100);
+        for (int student = 0; student < 50; student++) {
+            studentRepository.update(new Student(String.valueOf(student), "renamed" + student, 222));
+        }
+        studentRepository.delete("99");
+        assertEquals(151, studentRepository.getLogRecords());
+        assertTrue(scheduler.needsCompaction(studentRepository));
+
+        assertEquals(1, scheduler.runOnce());
+        assertEquals(0, studentRepository.getLogRecords());
+        assertFalse(Files.exists(JOURNAL));
+        assertFalse(Files.exists(OLD_JOURNAL));
+
+        StudentXMLRepository reloaded = reloaded();
+        assertEquals(99, size(reloaded.findAll()));
+        assertEquals("renamed7", reloaded.findOne("7").getNume());
+        assertNull(reloaded.findOne("99"));
+    }
+
+    @Test
+    public void xmlJournal_WritesDuringCompaction_KeptInTheNewJournal() throws InterruptedException {
+        saveStudents(0, 2000);
+        CompactionScheduler throttled = new CompactionScheduler(1.0, 10, 200_000);
+        throttled.register(studentRepository);
+        Thread compaction = new Thread(throttled::runOnce);
+        compaction.start();
+        while (!Files.exists(OLD_JOURNAL)) {
+            Thread.sleep(1);
+        }
+
+        saveStudents(2000, 2010);
+        studentRepository.update(new Student("1", "renamed", 222));
+        studentRepository.delete("2");
+        assertEquals("renamed", studentRepository.findOne("1").getNume());
+        // a process that crashed now would replay the old snapshot, the old journal and the new journal
+        StudentXMLRepository midway = reloaded();
+        assertEquals(2009, size(midway.findAll()));
+        assertEquals("renamed", midway.findOne("1").getNume());
+
+        compaction.join();
+        assertFalse(Files.exists(OLD_JOURNAL));
+        assertEquals(12, studentRepository.getLogRecords());
+        StudentXMLRepository reloaded = reloaded();
+        assertEquals(2009, size(reloaded.findAll()));
+        assertEquals("renamed", reloaded.findOne("1").getNume());
+        assertNull(reloaded.findOne("2"));
+    }
+
+    @Test
+    public void xmlJournal_CheckpointDuringCompaction_SnapshotDropped() throws InterruptedException {
+        saveStudents(0, 2000);
+        AtomicBoolean compacted = new AtomicBoolean(true);
+        Thread compaction = new Thread(() -> compacted.set(studentRepository.compact(200_000)));
+        compaction.start();
+        while (!Files.exists(OLD_JOURNAL)) {
+            Thread.sleep(1);
+        }
+
+        studentRepository.delete("0");
+        studentRepository.checkpoint();
+        compaction.join();
+
+        assertFalse(compacted.get());
+        assertFalse(Files.exists(Path.of(TestUtils.STUDENT_TEST_XML_FILE + ".compact")));
+        assertEquals(1999, size(reloaded().findAll()));
+    }
+
+    @Test
+    public void textFile_UpdatesAppended_CompactedInTheBackground() throws IOException, InterruptedException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+            fileWriter.write("1#ana#221\n2#maria#222\n");
+        }
+        StudentFileRepository textRepository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        scheduler.register(textRepository);
+
+        for (int i = 0; i < 20; i++) {
+            textRepository.update(new Student("1", "ana" + i, 221));
+        }
+        textRepository.save(new Student("3", "ioana", 223));
+        assertEquals(23, Files.readAllLines(Path.of(STUDENT_TEST_TXT_FILE)).size());
+        assertEquals(20, textRepository.getLogRecords());
+
+        scheduler.start(10);
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (textRepository.getLogRecords() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, textRepository.getLogRecords());
+        assertEquals(3, Files.readAllLines(Path.of(STUDENT_TEST_TXT_FILE)).size());
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        assertEquals(3, size(reloaded.findAll()));
+        assertEquals("ana19", reloaded.findOne("1").getNume());
+
+        scheduler.unregister(textRepository);
+        textRepository.update(new Student("2", "maria", 224));
+        assertEquals(3, Files.readAllLines(Path.of(STUDENT_TEST_TXT_FILE)).size());
+    }
+}
@@ -0,0 +1,148 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentFileRepository;
+import validation.NotaValidator;
+import validation.StudentValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int GRADES_PER_THREAD = 50;
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+        new File(STUDENT_TEST_TXT_FILE).createNewFile();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+        new File(STUDENT_TEST_TXT_FILE).delete();
+    }
+
+    private interface Worker {
+        void run(int thread, int item);
+    }
+
+    private static List<Throwable> runConcurrently(Worker worker, Runnable reader) throws InterruptedException {
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch writers = new CountDownLatch(THREADS);
+
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < GRADES_PER_THREAD; i++) {
+                        worker.run(thread, i);
+                    }
+                }
+                catch (Throwable throwable) {
+                    failures.add(throwable);
+                }
+                finally {
+                    writers.countDown();
+                }
+            });
+        }
+        executor.execute(() -> {
+            try {
+                start.await();
+                while (writing.get()) {
+                    reader.run();
+                }
+            }
+            catch (Throwable throwable) {
+                failures.add(throwable);
+            }
+        });
+
+        start.countDown();
+        writers.await();
+        writing.set(false);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        return new ArrayList<>(failures);
+    }
+
+    private void concurrentGrades(boolean journaled) throws InterruptedException {
+        NotaXMLRepository gradeRepository = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        if (journaled) {
+            gradeRepository.enableJournal(75);
+        }
+
+        List<Throwable> failures = runConcurrently(
+                (thread, item) -> {
+                    gradeRepository.save(new Nota(new Pair<>("s" + thread, "t" + item), 10, 7, "OK"));
+                    if (item % 5 == 0) {
+                        gradeRepository.update(new Nota(new Pair<>("s" + thread, "t" + item), 9, 7, "ACTUALIZAT"));
+                    }
+                },
+                () -> {
+                    gradeRepository.findAll().forEach(Nota::getNota);
+                    gradeRepository.findByStudent("s0").forEach(Nota::getNota);
+                });
+
+        assertEquals(new ArrayList<Throwable>(), failures);
+        for (int thread = 0; thread < THREADS; thread++) {
+            assertEquals(GRADES_PER_THREAD, gradeRepository.findByStudent("s" + thread).size());
+        }
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        List<Nota> grades = new ArrayList<>();
+        reloaded.findAll().forEach(grades::add);
+        assertEquals(THREADS * GRADES_PER_THREAD, grades.size());
+        assertEquals(9, reloaded.findOne(new Pair<>("s3", "t5")).getNota(), 0.01);
+    }
+
+    @Test
+    public void concurrentSaves_Snapshot_NoLostUpdates() throws InterruptedException {
+        concurrentGrades(false);
+    }
+
+    @Test
+    public void concurrentSaves_Journal_NoLostUpdates() throws InterruptedException {
+        concurrentGrades(true);
+    }
+
+    @Test
+    public void concurrentSaves_TextFile_NoLostUpdates() throws InterruptedException {
+        StudentFileRepository studentRepository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+
+        List<Throwable> failures = runConcurrently(
+                (thread, item) -> studentRepository.save(new Student(thread + "-" + item, "student", 221 + thread)),
+                () -> studentRepository.findAll().forEach(Student::getNume));
+
+        assertEquals(new ArrayList<Throwable>(), failures);
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        List<Student> students = new ArrayList<>();
+        reloaded.findAll().forEach(students::add);
+        assertEquals(THREADS * GRADES_PER_THREAD, students.size());
+    }
+}
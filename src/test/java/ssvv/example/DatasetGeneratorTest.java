@@ -0,0 +1,89 @@
+package ssvv.example;
+
+import generator.DatasetGenerator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaFileRepository;
+import repository.NotaXMLRepository;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import repository.TemaFileRepository;
+import repository.TemaXMLRepository;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DatasetGeneratorTest {
+    private static final String[] FILES = {"studenti.xml", "teme.xml", "note.xml", "studenti.txt", "teme.txt", "note.txt"};
+
+    private Path first;
+    private Path second;
+
+    @Before
+    public void setUp() throws IOException {
+        first = Files.createTempDirectory("dataset");
+        second = Files.createTempDirectory("dataset");
+    }
+
+    @After
+    public void tearDown() {
+        for (Path directory : new Path[]{first, second}) {
+            for (String file : FILES) {
+                directory.resolve(file).toFile().delete();
+            }
+            directory.toFile().delete();
+        }
+    }
+
+    private static int count(Iterable<?> entities) {
+        int count = 0;
+        for (Object ignored : entities) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void generate_SameSeed_SameFiles() throws Exception {
+        new DatasetGenerator(7, 50, 8, 5).writeXml(first);
+        new DatasetGenerator(7, 50, 8, 5).writeXml(second);
+        new DatasetGenerator(8, 50, 8, 5).writeText(first);
+        new DatasetGenerator(8, 50, 8, 5).writeText(second);
+
+        for (String file : FILES) {
+            assertTrue(Arrays.equals(Files.readAllBytes(first.resolve(file)), Files.readAllBytes(second.resolve(file))));
+        }
+
+        new DatasetGenerator(9, 50, 8, 5).writeXml(second);
+        assertFalse(Arrays.equals(Files.readAllBytes(first.resolve("note.xml")), Files.readAllBytes(second.resolve("note.xml"))));
+    }
+
+    @Test
+    public void generate_LoadedByRepositories_AllValid() throws Exception {
+        DatasetGenerator generator = new DatasetGenerator(42, 200, 12, 10);
+        generator.writeXml(first);
+        generator.writeText(first);
+
+        assertEquals(200, count(new StudentXMLRepository(new StudentValidator(), first.resolve("studenti.xml").toString()).findAll()));
+        assertEquals(12, count(new TemaXMLRepository(new TemaValidator(), first.resolve("teme.xml").toString()).findAll()));
+        NotaXMLRepository note = new NotaXMLRepository(new NotaValidator(), first.resolve("note.xml").toString());
+        assertEquals(2000, count(note.findAll()));
+        assertEquals(10, note.findByStudent("1").size());
+        new File(first.resolve("note.xml.journal").toString()).delete();
+
+        assertEquals(200, count(new StudentFileRepository(new StudentValidator(), first.resolve("studenti.txt").toString()).findAll()));
+        assertEquals(12, count(new TemaFileRepository(new TemaValidator(), first.resolve("teme.txt").toString()).findAll()));
+        assertEquals(2000, count(new NotaFileRepository(new NotaValidator(), first.resolve("note.txt").toString()).findAll()));
+    }
+}
@@ -0,0 +1,183 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import metrics.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.Durability;
+import repository.NotaFileRepository;
+import repository.NotaXMLRepository;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+public class DurabilityTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+    private static final String NOTE_TEST_TXT_FILE = "grade_test.txt";
+    private static final int WRITERS = 8;
+    private static final int GRADES_PER_WRITER = 200;
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        new File(STUDENT_TEST_TXT_FILE).createNewFile();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(STUDENT_TEST_TXT_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+        new File(NOTE_TEST_TXT_FILE).delete();
+    }
+
+    private static ArrayList<Student> toList(Iterable<Student> students) {
+        ArrayList<Student> studentList = new ArrayList<>();
+        students.forEach(studentList::add);
+        return studentList;
+    }
+
+    @Test
+    public void xmlSnapshot_EveryDurability_ReplacedWithoutLeftovers() {
+        for (Durability durability : Durability.values()) {
+            StudentXMLRepository studentRepo = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE);
+            studentRepo.setDurability(durability);
+            studentRepo.save(new Student(durability.name(), "ana", 221));
+
+            assertFalse(new File(TestUtils.STUDENT_TEST_XML_FILE + ".tmp").exists());
+        }
+
+        StudentXMLRepository studentRepo = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE);
+        assertEquals(Durability.values().length, toList(studentRepo.findAll()).size());
+    }
+
+    @Test
+    public void textSnapshot_Fsync_ReplacedWithoutLeftovers() {
+        StudentFileRepository studentRepo = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        studentRepo.setDurability(Durability.FSYNC);
+        studentRepo.save(new Student("1", "ana", 221));
+        studentRepo.save(new Student("2", "maria", 222));
+        studentRepo.update(new Student("2", "maria", 223));
+
+        assertFalse(new File(STUDENT_TEST_TXT_FILE + ".tmp").exists());
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        assertEquals("ana", reloaded.findOne("1").getNume());
+        assertEquals(223, reloaded.findOne("2").getGrupa());
+    }
+
+    private static Nota nota(String idStudent, String idTema) {
+        return new Nota(new Pair<>(idStudent, idTema), 9, 10, "BINE");
+    }
+
+    /**
+     * Saves GRADES_PER_WRITER grades from each of WRITERS threads at once.
+     * @return the number of forces of the file
+     */
+    private static long saveConcurrently(BiConsumer<String, String> save, String name) throws InterruptedException {
+        long before = Metrics.timer(name + ".append.sync").snapshot().getCount();
+        List<Thread> writers = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            String idTema = String.valueOf(writer);
+            writers.add(new Thread(() -> {
+                for (int student = 0; student < GRADES_PER_WRITER; student++) {
+                    save.accept(String.valueOf(student), idTema);
+                }
+            }));
+        }
+        writers.forEach(Thread::start);
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return Metrics.timer(name + ".append.sync").snapshot().getCount() - before;
+    }
+
+    @Test
+    public void xmlJournal_GroupCommit_EveryGradePersisted() throws IOException, InterruptedException {
+        TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+        try (NotaXMLRepository gradeRepo = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE)) {
+            gradeRepo.enableJournal(500);
+            gradeRepo.setDurability(Durability.GROUP_COMMIT);
+
+            long forces = saveConcurrently((idStudent, idTema) -> gradeRepo.save(nota(idStudent, idTema)), "NotaXMLRepository");
+            assertTrue(forces < WRITERS * GRADES_PER_WRITER);
+            gradeRepo.delete(new Pair<>("0", "0"));
+        }
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(GRADES_PER_WRITER - 1, reloaded.findByTema("0").size());
+        for (int tema = 1; tema < WRITERS; tema++) {
+            assertEquals(GRADES_PER_WRITER, reloaded.findByTema(String.valueOf(tema)).size());
+        }
+    }
+
+    @Test
+    public void textAppend_GroupCommit_EveryGradePersisted() throws IOException, InterruptedException {
+        new File(NOTE_TEST_TXT_FILE).createNewFile();
+        NotaFileRepository gradeRepo = new NotaFileRepository(new NotaValidator(), NOTE_TEST_TXT_FILE);
+        gradeRepo.setDurability(Durability.GROUP_COMMIT);
+
+        long forces = saveConcurrently((idStudent, idTema) -> gradeRepo.save(nota(idStudent, idTema)), "NotaFileRepository");
+        assertTrue(forces < WRITERS * GRADES_PER_WRITER);
+        gradeRepo.update(new Nota(new Pair<>("0", "0"), 10, 10, "FOARTE BINE"));
+        gradeRepo.save(new Nota(new Pair<>("0", "9"), 8, 10, "BINE"));
+        gradeRepo.setDurability(Durability.FSYNC);
+        gradeRepo.save(new Nota(new Pair<>("1", "9"), 8, 10, "BINE"));
+
+        NotaFileRepository reloaded = new NotaFileRepository(new NotaValidator(), NOTE_TEST_TXT_FILE);
+        int count = 0;
+        for (Nota ignored : reloaded.findAll()) {
+            count++;
+        }
+        assertEquals(WRITERS * GRADES_PER_WRITER + 2, count);
+        assertEquals(10, reloaded.findOne(new Pair<>("0", "0")).getNota(), 0);
+    }
+
+    @Test
+    public void service_GroupCommit_ConcurrentGradesShareTheForces() throws IOException, InterruptedException {
+        TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+        try (NotaXMLRepository gradeRepo = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE)) {
+            Service service = new Service(new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE),
+                    new TemaXMLRepository(new TemaValidator(), TestUtils.HOMEWORK_TEST_XML_FILE), gradeRepo);
+            for (int student = 0; student < GRADES_PER_WRITER; student++) {
+                service.saveStudent(String.valueOf(student), "student" + student, 221);
+            }
+            for (int tema = 0; tema < WRITERS; tema++) {
+                service.saveTema(String.valueOf(tema), "DESCRIPTION", 14, 1);
+            }
+            gradeRepo.enableJournal(100_000);
+            gradeRepo.setDurability(Durability.GROUP_COMMIT);
+
+            long forces = saveConcurrently((idStudent, idTema) -> service.saveNota(idStudent, idTema, 9, 14, "BINE"),
+                    "NotaXMLRepository");
+            assertTrue(forces < WRITERS * GRADES_PER_WRITER);
+        }
+        finally {
+            new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        }
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        for (int tema = 0; tema < WRITERS; tema++) {
+            assertEquals(GRADES_PER_WRITER, reloaded.findByTema(String.valueOf(tema)).size());
+        }
+    }
+}
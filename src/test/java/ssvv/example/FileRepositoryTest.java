@@ -0,0 +1,222 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaFileRepository;
+import repository.StudentFileRepository;
+import repository.UnitOfWork;
+import validation.NotaValidator;
+import validation.StudentValidator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FileRepositoryTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+    private static final String NOTE_TEST_TXT_FILE = "grade_test.txt";
+
+    private StudentFileRepository studentRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+            fileWriter.write("1#ana#221\n2#maria#222\n");
+        }
+        studentRepository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        new File(STUDENT_TEST_TXT_FILE).delete();
+        new File(NOTE_TEST_TXT_FILE).delete();
+    }
+
+    private static ArrayList<Student> toList(Iterable<Student> students) {
+        ArrayList<Student> studentList = new ArrayList<>();
+        students.forEach(studentList::add);
+        return studentList;
+    }
+
+    private static void append(String content) throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE, true)) {
+            fileWriter.write(content);
+        }
+    }
+
+    @Test
+    public void findAll_FileUnchanged_ServedFromMemory() {
+        Student before = studentRepository.findOne("1");
+
+        assertEquals(2, toList(studentRepository.findAll()).size());
+        assertEquals(2, toList(studentRepository.findAll()).size());
+        assertSame(before, studentRepository.findOne("1"));
+    }
+
+    @Test
+    public void findAll_AfterOwnWrites_NoReload() {
+        studentRepository.save(new Student("3", "ion", 223));
+        Student saved = studentRepository.findOne("3");
+
+        assertEquals(3, toList(studentRepository.findAll()).size());
+        assertSame(saved, studentRepository.findOne("3"));
+    }
+
+    @Test
+    public void findAll_FileUnchanged_NotBlockedByReaders() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        UnitOfWork locks = new UnitOfWork().read(studentRepository);
+        try {
+            Future<Integer> size = executor.submit(() -> toList(studentRepository.findAll()).size());
+
+            assertEquals(2, (int) size.get(5, TimeUnit.SECONDS));
+            assertEquals(2, toList(studentRepository.findAll()).size());
+        }
+        finally {
+            locks.close();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void findAll_ExternalAppend_OnlyDeltaApplied() throws IOException {
+        Student before = studentRepository.findOne("1");
+        append("3#ion#223\n2#maria#224\n");
+
+        assertEquals(3, toList(studentRepository.findAll()).size());
+        assertSame(before, studentRepository.findOne("1"));
+        assertEquals(224, studentRepository.findOne("2").getGrupa());
+    }
+
+    @Test
+    public void findAll_ExternalRewrite_FullReload() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+            fileWriter.write("7#george#937\n8#vasile#936\n9#ion#935\n");
+        }
+
+        assertEquals(3, toList(studentRepository.findAll()).size());
+        assertEquals(null, studentRepository.findOne("1"));
+        assertEquals("george", studentRepository.findOne("7").getNume());
+    }
+
+    @Test
+    public void load_DuplicateLines_LastLineWins() throws IOException {
+        append("1#ana#221\n1#ana#231\n");
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+
+        assertEquals(2, toList(reloaded.findAll()).size());
+        assertEquals(231, reloaded.findOne("1").getGrupa());
+    }
+
+    @Test
+    public void load_MixedLineEndingsAndBadLines_ValidLinesKept() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+            fileWriter.write("1#ana#221\r\n\r\n2#maria\n3#ion#abc\r4#" + "x".repeat(200_000) + "#224\n5#vasile#+225");
+        }
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+
+        assertEquals(3, toList(reloaded.findAll()).size());
+        assertEquals("ana", reloaded.findOne("1").getNume());
+        assertEquals(200_000, reloaded.findOne("4").getNume().length());
+        assertEquals(225, reloaded.findOne("5").getGrupa());
+    }
+
+    @Test
+    public void load_MalformedBytes_OtherLinesKept() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(STUDENT_TEST_TXT_FILE)) {
+            out.write("1#ana#221\n2#ma".getBytes(StandardCharsets.US_ASCII));
+            out.write(new byte[] {(byte) 0xff, (byte) 0xc3});
+            out.write("ria#abc\n3#ion#223\n".getBytes(StandardCharsets.US_ASCII));
+        }
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+
+        assertEquals(2, toList(reloaded.findAll()).size());
+        assertEquals("ana", reloaded.findOne("1").getNume());
+        assertEquals("ion", reloaded.findOne("3").getNume());
+    }
+
+    @Test
+    public void findAll_FullReload_ReadersNeverSeeAnEmptyRepository() throws Exception {
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger misses = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                if (studentRepository.findOne("1") == null) {
+                    misses.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 2; i < 2000; i++) {
+            content.append(i).append("#ion#223\n");
+        }
+        for (int reload = 0; reload < 50; reload++) {
+            try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+                fileWriter.write(content + "1#ana#" + (300 + reload) + "\n");
+            }
+            toList(studentRepository.findAll());
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(0, misses.get());
+        assertEquals(1999, toList(studentRepository.findAll()).size());
+    }
+
+    @Test
+    public void reload_NotaInitiala_OptionalLastField() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(NOTE_TEST_TXT_FILE)) {
+            fileWriter.write("1#1#9.5#7#BINE\n");
+        }
+        NotaFileRepository gradeRepository = new NotaFileRepository(new NotaValidator(), NOTE_TEST_TXT_FILE);
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 0, 12, "TARZIU", 9.0));
+
+        NotaFileRepository reloaded = new NotaFileRepository(new NotaValidator(), NOTE_TEST_TXT_FILE);
+
+        assertNull(reloaded.findOne(new Pair<>("1", "1")).getNotaInitiala());
+        assertEquals(9.0, reloaded.findOne(new Pair<>("1", "2")).getNotaInitiala(), 0);
+        assertEquals("TARZIU", reloaded.findOne(new Pair<>("1", "2")).getFeedback());
+    }
+
+    @Test
+    public void load_Grades_ParsedLikeDoubleParseDouble() throws IOException {
+        String[] values = {"9.5", "10.0", "0.1", "7", "-0.0", ".5", "8.", "1e1", "3.14159265358979323846", " 6.25", "9.999999999999999"};
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            content.append("1#").append(i).append('#').append(values[i]).append("#7#BINE\n");
+        }
+        try (FileWriter fileWriter = new FileWriter(NOTE_TEST_TXT_FILE)) {
+            fileWriter.write(content.toString());
+        }
+
+        NotaFileRepository gradeRepository = new NotaFileRepository(new NotaValidator(), NOTE_TEST_TXT_FILE);
+
+        for (int i = 0; i < values.length; i++) {
+            double expected = Double.parseDouble(values[i]);
+            double actual = gradeRepository.findOne(new Pair<>("1", String.valueOf(i))).getNota();
+            assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(actual));
+        }
+    }
+}
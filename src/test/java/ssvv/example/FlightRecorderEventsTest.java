@@ -0,0 +1,118 @@
+package ssvv.example;
+
+import domain.Student;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FlightRecorderEventsTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+    private static final String NUME = "jfr_test_student";
+
+    private Path recordingFile;
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+        Files.write(Path.of(STUDENT_TEST_TXT_FILE), "1#ana#221\n2#maria#abc\n".getBytes());
+        recordingFile = Files.createTempFile("ssvv", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(STUDENT_TEST_TXT_FILE).delete();
+        new File(NUME + ".txt").delete();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+    @Test
+    public void workload_EmitsTheCustomEvents() throws IOException {
+        try (Recording recording = new Recording()) {
+            for (String name : new String[] {"ssvv.RepositoryLoad", "ssvv.RepositoryWrite", "ssvv.ValidationFailed",
+                    "ssvv.SaveNota", "ssvv.StudentReport"}) {
+                recording.enable(name).withoutThreshold();
+            }
+            recording.start();
+
+            Service service = new Service(new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE),
+                    new TemaXMLRepository(new TemaValidator(), TestUtils.HOMEWORK_TEST_XML_FILE),
+                    new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE));
+            service.saveStudent("1", NUME, 221);
+            service.saveTema("1", "DESCRIPTION", 10, 1);
+            service.saveNota("1", "1", 9, 11, "BINE");
+            assertThrows(RuntimeException.class, () -> service.saveNota("9", "1", 9, 11, "BINE"));
+            assertThrows(RuntimeException.class, () -> service.saveStudent("2", "", 221));
+            service.createStudentFile("1", "1");
+            StudentFileRepository textRepository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+            textRepository.save(new Student("3", "ioana", 222));
+
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+        List<RecordedEvent> loads = events(events, "ssvv.RepositoryLoad");
+        assertEquals(4, loads.size());
+        assertTrue(loads.stream().anyMatch(event -> event.getString("format").equals("text") && event.getLong("entities") == 1
+                && event.getLong("bytes") == 22));
+
+        List<RecordedEvent> writes = events(events, "ssvv.RepositoryWrite");
+        assertTrue(writes.stream().anyMatch(event -> event.getString("repository").equals("NotaXMLRepository")
+                && event.getString("kind").equals("snapshot") && event.getLong("entities") == 1 && event.getLong("bytes") > 0));
+        assertTrue(writes.stream().anyMatch(event -> event.getString("format").equals("text")
+                && event.getString("kind").equals("append") && event.getLong("bytes") == "3#ioana#222\n".length()));
+
+        List<RecordedEvent> failures = events(events, "ssvv.ValidationFailed");
+        assertEquals(2, failures.size());
+        assertTrue(failures.stream().anyMatch(event -> event.getString("repository").equals("StudentXMLRepository")
+                && event.getString("entityId").equals("2")));
+
+        List<RecordedEvent> grades = events(events, "ssvv.SaveNota");
+        assertEquals(2, grades.size());
+        RecordedEvent saved = grades.stream().filter(event -> event.getBoolean("salvata")).findFirst().get();
+        assertEquals(6.5, saved.getDouble("notaFinala"), 0);
+        assertEquals(1, saved.getInt("saptamaniIntarziere"));
+        assertTrue(saved.getBoolean("penalizata"));
+        assertTrue(saved.getDuration().toNanos() > 0);
+        assertFalse(grades.stream().filter(event -> !event.getBoolean("salvata")).findFirst().get().getString("eroare").isEmpty());
+
+        List<RecordedEvent> reports = events(events, "ssvv.StudentReport");
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).getBoolean("written"));
+        assertEquals(1, reports.get(0).getInt("grades"));
+        assertEquals(Files.size(Path.of(NUME + ".txt")), reports.get(0).getLong("bytes"));
+    }
+}
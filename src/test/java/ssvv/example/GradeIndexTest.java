@@ -0,0 +1,81 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import validation.NotaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GradeIndexTest {
+    private NotaXMLRepository gradeRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "OK"));
+        gradeRepository.save(new Nota(new Pair<>("2", "1"), 7, 7, "OK"));
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+    }
+
+    private static ArrayList<Nota> toList(Iterable<Nota> grades) {
+        ArrayList<Nota> gradeList = new ArrayList<>();
+        grades.forEach(gradeList::add);
+        return gradeList;
+    }
+
+    @Test
+    public void findByStudent_OnlyThatStudentsGrades() {
+        ArrayList<Nota> grades = toList(gradeRepository.findByStudent("1"));
+
+        assertEquals(2, grades.size());
+        assertTrue(grades.stream().allMatch(nota -> nota.getID().getObject1().equals("1")));
+        assertEquals(0, gradeRepository.findByStudent("3").size());
+    }
+
+    @Test
+    public void findByTema_OnlyThatHomeworksGrades() {
+        ArrayList<Nota> grades = toList(gradeRepository.findByTema("1"));
+
+        assertEquals(2, grades.size());
+        assertTrue(grades.stream().allMatch(nota -> nota.getID().getObject2().equals("1")));
+    }
+
+    @Test
+    public void updateAndDelete_IndexesFollow() {
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "FOARTE BINE"));
+        gradeRepository.delete(new Pair<>("1", "2"));
+
+        ArrayList<Nota> grades = toList(gradeRepository.findByStudent("1"));
+        assertEquals(1, grades.size());
+        assertEquals(10, grades.get(0).getNota(), 0.01);
+        assertEquals(0, gradeRepository.findByTema("2").size());
+    }
+
+    @Test
+    public void reload_IndexesRebuilt() {
+        gradeRepository.enableJournal(100);
+        gradeRepository.save(new Nota(new Pair<>("2", "2"), 6, 8, "SLAB"));
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+
+        assertEquals(2, reloaded.findByStudent("2").size());
+        assertEquals(2, reloaded.findByTema("2").size());
+    }
+}
@@ -0,0 +1,139 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class GradeRecomputationTest {
+    private NotaXMLRepository gradeRepository;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        StudentXMLRepository studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(studentRepository, temaRepository, gradeRepository);
+
+        for (int student = 1; student <= 5; student++) {
+            service.saveStudent(String.valueOf(student), "student" + student, 221);
+        }
+        service.saveTema("1", "DESCRIPTION", 10, 1);
+        service.saveTema("2", "DESCRIPTION", 10, 1);
+        service.saveNota("1", "1", 9, 11, "BINE");
+        service.saveNota("2", "1", 8, 12, "BINE");
+        service.saveNota("3", "1", 10, 14, "INTARZIAT");
+        service.saveNota("4", "1", 7, 10, "OK");
+        service.saveNota("1", "2", 9, 11, "BINE");
+        gradeRepository.save(new Nota(new Pair<>("5", "1"), 4, 13, "VECHE"));
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+    }
+
+    private static double nota(NotaXMLRepository repository, String idStudent, String idTema) {
+        return repository.findOne(new Pair<>(idStudent, idTema)).getNota();
+    }
+
+    @Test
+    public void saveNota_InitialGradeStoredAndPersisted() {
+        assertEquals(6.5, nota(gradeRepository, "1", "1"), 0);
+        assertEquals(9, gradeRepository.findOne(new Pair<>("1", "1")).getNotaInitiala(), 0);
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(9, reloaded.findOne(new Pair<>("1", "1")).getNotaInitiala(), 0);
+        assertNull(reloaded.findOne(new Pair<>("5", "1")).getNotaInitiala());
+    }
+
+    @Test
+    public void updateTema_DeadlineMoved_GradesRecomputed() {
+        assertEquals(1, service.updateTema("1", "DESCRIPTION", 12, 1));
+
+        assertEquals(10, nota(gradeRepository, "1", "1"), 0);
+        assertEquals(8, nota(gradeRepository, "2", "1"), 0);
+        assertEquals(5, nota(gradeRepository, "3", "1"), 0);
+        assertEquals(10, nota(gradeRepository, "4", "1"), 0);
+        assertEquals(4, nota(gradeRepository, "5", "1"), 0);
+        assertEquals(6.5, nota(gradeRepository, "1", "2"), 0);
+
+        assertEquals(1, service.updateTema("1", "DESCRIPTION", 10, 1));
+        assertEquals(6.5, nota(gradeRepository, "1", "1"), 0);
+        assertEquals(3, nota(gradeRepository, "2", "1"), 0);
+    }
+
+    @Test
+    public void updateTema_DeadlineMovedEarlier_GradesClampedToZero() {
+        service.saveNota("2", "2", 4, 10, "SLAB");
+        assertEquals(4, nota(gradeRepository, "2", "2"), 0);
+
+        assertEquals(1, service.updateTema("2", "DESCRIPTION", 8, 1));
+
+        assertEquals(0, nota(gradeRepository, "2", "2"), 0);
+        assertEquals(1, nota(gradeRepository, "1", "2"), 0);
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(0, nota(reloaded, "2", "2"), 0);
+        assertEquals(4, reloaded.findOne(new Pair<>("2", "2")).getNotaInitiala(), 0);
+    }
+
+    @Test
+    public void updateTema_DeadlineMovedAwayAndBack_SameGradeAsSaveNota() {
+        service.saveNota("2", "2", 9, 8, "DEVREME");
+        double saved = nota(gradeRepository, "2", "2");
+        assertEquals(10, saved, 0);
+
+        service.updateTema("2", "DESCRIPTION", 7, 1);
+        assertEquals(6.5, nota(gradeRepository, "2", "2"), 0);
+        service.updateTema("2", "DESCRIPTION", 11, 1);
+        service.updateTema("2", "DESCRIPTION", 10, 1);
+
+        assertEquals(saved, nota(gradeRepository, "2", "2"), 0);
+        assertEquals(6.5, nota(gradeRepository, "1", "2"), 0);
+    }
+
+    @Test
+    public void updateTema_Journaled_RecomputedGradesReplayed() {
+        gradeRepository.enableJournal(100000);
+        service.saveTema("3", "DESCRIPTION", 10, 1);
+        List<Nota> note = new ArrayList<>();
+        for (int student = 1000; student < 6000; student++) {
+            service.saveStudent(String.valueOf(student), "student" + student, 221);
+            note.add(new Nota(new Pair<>(String.valueOf(student), "3"), 8, 11, "BINE"));
+        }
+        service.saveNotaBatch(note);
+
+        assertEquals(1, service.updateTema("3", "DESCRIPTION", 11, 1));
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(5000, reloaded.findByTema("3").size());
+        for (Nota nota : reloaded.findByTema("3")) {
+            assertEquals(8, nota.getNota(), 0);
+        }
+        assertEquals(3, nota(reloaded, "2", "1"), 0);
+    }
+}
@@ -0,0 +1,140 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.GradeSummary;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GradeStatisticsTest {
+    private StudentXMLRepository studentRepository;
+    private NotaXMLRepository gradeRepository;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(studentRepository, temaRepository, gradeRepository);
+
+        for (int student = 1; student <= 10; student++) {
+            service.saveStudent(String.valueOf(student), "student" + student, 221 + student % 3);
+        }
+        List<Nota> note = new ArrayList<>();
+        Random random = new Random(7);
+        for (int tema = 1; tema <= 4; tema++) {
+            service.saveTema(String.valueOf(tema), "DESCRIPTION", 14, 1);
+            for (int student = 1; student <= 10; student++) {
+                note.add(new Nota(new Pair<>(String.valueOf(student), String.valueOf(tema)), random.nextInt(101) / 10.0, 14, "BINE"));
+            }
+        }
+        service.saveNotaBatch(note);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+    }
+
+    private void assertSummary(GradeSummary summary, Predicate<Nota> filter) {
+        int count = 0;
+        double sum = 0;
+        double min = Double.NaN;
+        double max = Double.NaN;
+        int[] histogram = new int[GradeSummary.BUCKETS];
+        for (Nota nota : service.findAllNote()) {
+            if (filter.test(nota)) {
+                count++;
+                sum += nota.getNota();
+                min = count == 1 ? nota.getNota() : Math.min(min, nota.getNota());
+                max = count == 1 ? nota.getNota() : Math.max(max, nota.getNota());
+                histogram[(int) Math.floor(nota.getNota())]++;
+            }
+        }
+        assertEquals(count, summary.getCount());
+        assertEquals(sum, summary.getSum(), 1e-9);
+        assertEquals(min, summary.getMin(), 0);
+        assertEquals(max, summary.getMax(), 0);
+        assertArrayEquals(histogram, summary.getHistogram());
+    }
+
+    private void assertAllSummaries() {
+        for (int i = 1; i <= 10; i++) {
+            String id = String.valueOf(i);
+            assertSummary(service.getNoteSummaryByStudent(id), nota -> nota.getID().getObject1().equals(id));
+            assertSummary(service.getNoteSummaryByTema(id), nota -> nota.getID().getObject2().equals(id));
+        }
+        for (int grupa = 221; grupa <= 223; grupa++) {
+            int g = grupa;
+            assertSummary(service.getNoteSummaryByGrupa(grupa), nota -> {
+                Student student = studentRepository.findOne(nota.getID().getObject1());
+                return student != null && student.getGrupa() == g;
+            });
+        }
+    }
+
+    @Test
+    public void summaries_MatchTheGrades() {
+        assertAllSummaries();
+        assertEquals(40, service.getNoteSummaryByGrupa(221).getCount() + service.getNoteSummaryByGrupa(222).getCount()
+                + service.getNoteSummaryByGrupa(223).getCount());
+        assertTrue(Double.isNaN(service.getNoteSummaryByStudent("99").getMedie()));
+    }
+
+    @Test
+    public void summaries_FollowUpdatesAndDeletes() {
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 14, "FOARTE BINE"));
+        gradeRepository.delete(new Pair<>("2", "2"));
+        service.updateStudent("3", "student3", 223);
+        service.deleteTema("4");
+        service.deleteStudent("5");
+        assertAllSummaries();
+
+        service.saveStudent("5", "student5", 221);
+        service.saveNota("5", "1", 4, 14, "SLAB");
+        assertAllSummaries();
+        assertEquals(4, service.getNoteSummaryByStudent("5").getMedie(), 0);
+    }
+
+    @Test
+    public void summaries_BuiltFromTheLoadedRepositories() {
+        Service reloaded = new Service(new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE),
+                new TemaXMLRepository(new TemaValidator(), TestUtils.HOMEWORK_TEST_XML_FILE),
+                new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE));
+
+        for (int grupa = 221; grupa <= 223; grupa++) {
+            GradeSummary expected = service.getNoteSummaryByGrupa(grupa);
+            GradeSummary actual = reloaded.getNoteSummaryByGrupa(grupa);
+            assertEquals(expected.getCount(), actual.getCount());
+            assertEquals(expected.getSum(), actual.getSum(), 1e-9);
+            assertArrayEquals(expected.getHistogram(), actual.getHistogram());
+        }
+    }
+}
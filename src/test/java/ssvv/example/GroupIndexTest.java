@@ -0,0 +1,81 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+
+public class GroupIndexTest {
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        StudentXMLRepository fileRepository1 = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository fileRepository2 = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        NotaXMLRepository fileRepository3 = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(fileRepository1, fileRepository2, fileRepository3);
+
+        service.saveStudent("1", "ana", 221);
+        service.saveStudent("2", "maria", 221);
+        service.saveStudent("3", "ion", 937);
+        service.saveTema("1", "DESCRIPTION", 12, 1);
+        service.saveNota("1", "1", 10, 12, "BINE");
+        service.saveNota("3", "1", 9, 12, "BINE");
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+    }
+
+    private static <T> ArrayList<T> toList(Iterable<T> items) {
+        ArrayList<T> list = new ArrayList<>();
+        items.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    public void findStudentsByGrupa_OnlyThatGroup() {
+        assertEquals(2, toList(service.findStudentsByGrupa(221)).size());
+        assertEquals(1, toList(service.findStudentsByGrupa(937)).size());
+        assertEquals(0, toList(service.findStudentsByGrupa(111)).size());
+    }
+
+    @Test
+    public void updateStudent_MovesToNewGroup() {
+        service.updateStudent("2", "maria", 222);
+
+        assertEquals(1, toList(service.findStudentsByGrupa(221)).size());
+        ArrayList<Student> grupa222 = toList(service.findStudentsByGrupa(222));
+        assertEquals(1, grupa222.size());
+        assertEquals("2", grupa222.get(0).getID());
+    }
+
+    @Test
+    public void findNoteByGrupa_OnlyGradesOfThatGroup() {
+        ArrayList<Nota> note = toList(service.findNoteByGrupa(221));
+
+        assertEquals(1, note.size());
+        assertEquals("1", note.get(0).getID().getObject1());
+    }
+}
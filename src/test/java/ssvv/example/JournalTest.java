@@ -0,0 +1,108 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import validation.NotaValidator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JournalTest {
+    private static final String JOURNAL_FILE = TestUtils.GRADES_TEST_XML_FILE + ".journal";
+
+    private NotaXMLRepository gradeRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        gradeRepository.enableJournal(100);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(JOURNAL_FILE).delete();
+    }
+
+    private static ArrayList<Nota> reload() {
+        NotaXMLRepository gradeRepo = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        ArrayList<Nota> gradeList = new ArrayList<>();
+        gradeRepo.findAll().forEach(gradeList::add);
+        return gradeList;
+    }
+
+    @Test
+    public void save_Journaled_SnapshotUntouched() throws IOException {
+        String snapshot = Files.readString(Paths.get(TestUtils.GRADES_TEST_XML_FILE));
+
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "OK"));
+
+        assertEquals(snapshot, Files.readString(Paths.get(TestUtils.GRADES_TEST_XML_FILE)));
+        assertEquals(2, Files.readAllLines(Paths.get(JOURNAL_FILE)).size());
+    }
+
+    @Test
+    public void reload_ReplaysJournal() {
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "OK"));
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "FOARTE BINE"));
+        gradeRepository.delete(new Pair<>("1", "2"));
+
+        ArrayList<Nota> gradeList = reload();
+
+        assertEquals(1, gradeList.size());
+        assertEquals(new Pair<>("1", "1"), gradeList.get(0).getID());
+        assertEquals(10, gradeList.get(0).getNota(), 0.01);
+        assertEquals("FOARTE BINE", gradeList.get(0).getFeedback());
+    }
+
+    @Test
+    public void checkpoint_WritesSnapshotAndDiscardsJournal() {
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        gradeRepository.checkpoint();
+
+        assertFalse(new File(JOURNAL_FILE).exists());
+        assertEquals(1, reload().size());
+    }
+
+    @Test
+    public void checkpointInterval_Reached_JournalDiscarded() {
+        gradeRepository.enableJournal(2);
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        assertTrue(new File(JOURNAL_FILE).exists());
+
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "OK"));
+        assertFalse(new File(JOURNAL_FILE).exists());
+        assertEquals(2, reload().size());
+    }
+
+    @Test
+    public void reload_TornRecord_Ignored() throws IOException {
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 7, "BINE"));
+        try (FileWriter fileWriter = new FileWriter(JOURNAL_FILE, true)) {
+            fileWriter.write("<save><nota IDStudent=\"1\" IDTema=\"2\"><Nota>8");
+        }
+
+        ArrayList<Nota> gradeList = reload();
+
+        assertEquals(1, gradeList.size());
+        assertEquals(new Pair<>("1", "1"), gradeList.get(0).getID());
+        assertNull(new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE).findOne(new Pair<>("1", "2")));
+    }
+}
@@ -0,0 +1,114 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import exceptions.AlreadyExistingEntityException;
+import exceptions.ValidationException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.MappedNotaRepository;
+import validation.NotaValidator;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MappedNotaRepositoryTest {
+    private static final String GRADES_TEST_ARCHIVE = "grade_test.archive";
+
+    private MappedNotaRepository gradeRepository;
+
+    @Before
+    public void setUp() {
+        gradeRepository = new MappedNotaRepository(new NotaValidator(), GRADES_TEST_ARCHIVE);
+        gradeRepository.save(new Nota(new Pair<>("1", "1"), 9.5, 7, "BINE"));
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 8, "OK"));
+        gradeRepository.save(new Nota(new Pair<>("2", "1"), 7, 7, "ăé€"));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        gradeRepository.close();
+        new File(GRADES_TEST_ARCHIVE).delete();
+        new File(GRADES_TEST_ARCHIVE + ".idx").delete();
+    }
+
+    private static int count(Iterable<?> entities) {
+        int count = 0;
+        for (Object ignored : entities) {
+            count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void crud_SameContractAsTheOtherRepositories() {
+        assertThrows(AlreadyExistingEntityException.class, () -> gradeRepository.save(new Nota(new Pair<>("1", "1"), 5, 7, "DUBLURA")));
+        assertThrows(ValidationException.class, () -> gradeRepository.save(new Nota(new Pair<>("3", "1"), 11, 7, "PREA MULT")));
+
+        assertEquals(9.5, gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "FOARTE BINE")).getNota(), 0.001);
+        assertEquals("FOARTE BINE", gradeRepository.findOne(new Pair<>("1", "1")).getFeedback());
+        assertNull(gradeRepository.update(new Nota(new Pair<>("9", "9"), 10, 7, "LIPSA")));
+
+        assertEquals("OK", gradeRepository.delete(new Pair<>("1", "2")).getFeedback());
+        assertNull(gradeRepository.delete(new Pair<>("1", "2")));
+        assertNull(gradeRepository.findOne(new Pair<>("1", "2")));
+        assertEquals(2, count(gradeRepository.findAll()));
+        assertEquals("ăé€", gradeRepository.findOne(new Pair<>("2", "1")).getFeedback());
+    }
+
+    @Test
+    public void reopen_NotaInitiala_KeptAndClearedOnUpdate() throws IOException {
+        gradeRepository.save(new Nota(new Pair<>("3", "1"), 0, 12, "TARZIU", 9.0));
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "FOARTE BINE", 10.0));
+        assertThrows(ValidationException.class, () -> gradeRepository.save(
+                new Nota(new Pair<>("4", "1"), 5, 7, "x".repeat(MappedNotaRepository.FEEDBACK_BYTES), 5.0)));
+        gradeRepository.close();
+
+        gradeRepository = new MappedNotaRepository(new NotaValidator(), GRADES_TEST_ARCHIVE);
+        assertEquals(9.0, gradeRepository.findOne(new Pair<>("3", "1")).getNotaInitiala(), 0);
+        assertEquals(10.0, gradeRepository.findOne(new Pair<>("1", "1")).getNotaInitiala(), 0);
+        assertNull(gradeRepository.findOne(new Pair<>("2", "1")).getNotaInitiala());
+
+        gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 7, "x".repeat(MappedNotaRepository.FEEDBACK_BYTES)));
+        assertNull(gradeRepository.findOne(new Pair<>("1", "1")).getNotaInitiala());
+        assertEquals(MappedNotaRepository.FEEDBACK_BYTES, gradeRepository.findOne(new Pair<>("1", "1")).getFeedback().length());
+    }
+
+    @Test
+    public void reopen_WithAndWithoutIndex_SameGrades() throws IOException {
+        gradeRepository.delete(new Pair<>("1", "2"));
+        gradeRepository.close();
+
+        gradeRepository = new MappedNotaRepository(new NotaValidator(), GRADES_TEST_ARCHIVE);
+        assertEquals(2, gradeRepository.size());
+        assertEquals(7, gradeRepository.findOne(new Pair<>("2", "1")).getNota(), 0.001);
+        gradeRepository.close();
+
+        new File(GRADES_TEST_ARCHIVE + ".idx").delete();
+        gradeRepository = new MappedNotaRepository(new NotaValidator(), GRADES_TEST_ARCHIVE);
+        assertEquals(2, count(gradeRepository.findAll()));
+        assertNull(gradeRepository.findOne(new Pair<>("1", "2")));
+    }
+
+    @Test
+    public void save_ManyGrades_IndexGrowsAndDeletedRecordsReused() {
+        for (int i = 0; i < 40_000; i++) {
+            gradeRepository.save(new Nota(new Pair<>("s" + i, "t" + i % 10), i % 11, 1 + i % 14, "feedback"));
+        }
+        long length = new File(GRADES_TEST_ARCHIVE).length();
+        for (int i = 0; i < 1000; i++) {
+            gradeRepository.delete(new Pair<>("s" + i, "t" + i % 10));
+            gradeRepository.save(new Nota(new Pair<>("n" + i, "t" + i % 10), 5, 7, "nou"));
+        }
+
+        assertEquals(40_003, gradeRepository.size());
+        assertEquals(length, new File(GRADES_TEST_ARCHIVE).length());
+        assertEquals(39999 % 11, gradeRepository.findOne(new Pair<>("s39999", "t9")).getNota(), 0.001);
+        assertEquals("nou", gradeRepository.findOne(new Pair<>("n999", "t9")).getFeedback());
+    }
+}
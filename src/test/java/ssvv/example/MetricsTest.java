@@ -0,0 +1,91 @@
+package ssvv.example;
+
+import metrics.LatencyHistogram;
+import metrics.LatencySnapshot;
+import metrics.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        service = new Service(new StudentXMLRepository(new StudentValidator(), studentFile.getPath()),
+                new TemaXMLRepository(new TemaValidator(), temeFile.getPath()),
+                new NotaXMLRepository(new NotaValidator(), noteFile.getPath()));
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+    }
+
+    @Test
+    public void histogram_PercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        LatencySnapshot snapshot = histogram.snapshot();
+        assertEquals(100_000, snapshot.getCount());
+        assertEquals(50_000.5, snapshot.getMeanMicros(), 0.01);
+        assertEquals(50_000, snapshot.getP50Micros(), 50_000 * 0.125);
+        assertEquals(99_000, snapshot.getP99Micros(), 99_000 * 0.125);
+        assertTrue(snapshot.getP99Micros() >= 99_000);
+        assertEquals(100_000, snapshot.getMaxMicros(), 0);
+    }
+
+    @Test
+    public void serviceAndRepositories_Recorded() {
+        service.saveStudent("1", "student", 221);
+        service.saveTema("1", "DESCRIPTION", 12, 1);
+        service.saveNota("1", "1", 9, 12, "BINE");
+
+        assertEquals(1, Metrics.timers().get("Service.saveNota").getCount());
+        assertEquals(1, Metrics.timers().get("NotaXMLRepository.save").getCount());
+        assertEquals(1, Metrics.timers().get("NotaXMLRepository.write").getCount());
+        assertTrue(Metrics.counters().get("NotaXMLRepository.bytes.written") > 0);
+        assertTrue(Metrics.dump().contains("Service.saveNota"));
+
+        new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(1, Metrics.timers().get("NotaXMLRepository.load").getCount());
+        assertEquals(1, (long) Metrics.counters().get("NotaXMLRepository.entities.loaded"));
+    }
+
+    @Test
+    public void mbean_ExposesTheTimers() throws Exception {
+        service.saveStudent("1", "student", 221);
+        Metrics.registerMBean();
+        Metrics.registerMBean();
+
+        TabularData timers = (TabularData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(Metrics.OBJECT_NAME), "Timers");
+        assertTrue(timers.containsKey(new Object[] {"Service.saveStudent"}));
+    }
+}
@@ -0,0 +1,219 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import service.ReportGenerator;
+import service.ReportsResult;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReportGeneratorTest {
+    private static final String NUME = "report_test_student";
+    private static final Path REPORT = Path.of(NUME + ".txt");
+
+    private TemaXMLRepository temaRepository;
+    private NotaXMLRepository gradeRepository;
+    private Service service;
+    private ReportGenerator reports;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        StudentXMLRepository studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        temaRepository = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(studentRepository, temaRepository, gradeRepository);
+        reports = new ReportGenerator(studentRepository, temaRepository, gradeRepository);
+
+        service.saveStudent("1", NUME, 221);
+        service.saveStudent("2", "other_student", 221);
+        service.saveTema("1", "DESCRIPTION", 12, 1);
+        service.saveTema("2", "DESCRIPTION", 10, 1);
+        service.saveNota("1", "1", 9, 12, "BINE");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        Files.deleteIfExists(REPORT);
+    }
+
+    @Test
+    public void createStudentFile_WritesTheGradesOfTheStudent() throws IOException {
+        service.saveNota("1", "2", 10, 11, "OK");
+        service.createStudentFile("1", "2");
+
+        assertEquals("Tema: 1\nNota: 9.0\nPredata in saptamana: 12\nDeadline: 12\nFeedback: BINE\n\n"
+                + "Tema: 2\nNota: 7.5\nPredata in saptamana: 11\nDeadline: 10\nFeedback: OK\n\n", Files.readString(REPORT));
+    }
+
+    @Test
+    public void writeReport_NothingChanged_NotWrittenAgain() throws IOException {
+        assertTrue(reports.writeReport("1"));
+        assertFalse(reports.writeReport("1"));
+
+        service.saveNota("2", "1", 8, 12, "BINE");
+        assertFalse(reports.writeReport("1"));
+
+        Files.delete(REPORT);
+        assertTrue(reports.writeReport("1"));
+        assertFalse(reports.writeReport("9"));
+    }
+
+    @Test
+    public void writeReport_GradeOrHomeworkChanged_WrittenAgain() throws IOException {
+        assertTrue(reports.writeReport("1"));
+
+        service.saveNota("1", "2", 10, 10, "OK");
+        assertTrue(reports.writeReport("1"));
+        assertFalse(reports.writeReport("1"));
+
+        service.updateTema("1", "DESCRIPTION", 13, 1);
+        assertTrue(reports.writeReport("1"));
+        assertTrue(Files.readString(REPORT).contains("Deadline: 13\n"));
+
+        service.updateTema("2", "DESCRIPTION", 13, 1);
+        gradeRepository.delete(new Pair<>("1", "2"));
+        assertTrue(reports.writeReport("1"));
+        assertEquals(1, Files.readString(REPORT).split("Tema: ").length - 1);
+    }
+
+    @Test
+    public void writeReport_StudentsWithTheSameName_FileRewrittenForEach() throws IOException {
+        service.saveStudent("3", NUME, 222);
+        service.saveNota("3", "2", 10, 10, "EXCELENT");
+
+        assertTrue(reports.writeReport("1"));
+        assertTrue(reports.writeReport("3"));
+        assertTrue(reports.writeReport("1"));
+
+        assertEquals("Tema: 1\nNota: 9.0\nPredata in saptamana: 12\nDeadline: 12\nFeedback: BINE\n\n", Files.readString(REPORT));
+        assertFalse(reports.writeReport("1"));
+        assertTrue(reports.writeReport("3"));
+        assertEquals("Tema: 2\nNota: 10.0\nPredata in saptamana: 10\nDeadline: 10\nFeedback: EXCELENT\n\n", Files.readString(REPORT));
+    }
+
+    @Test
+    public void writeAllReports_GradeWithoutHomework_LeftOut() throws IOException {
+        service.saveNota("1", "2", 10, 11, "OK");
+        temaRepository.delete("2");
+
+        Path directory = Files.createTempDirectory("reports_orphan");
+        try {
+            assertEquals(2, reports.writeAllReports(directory, 2));
+            assertEquals("Tema: 1\nNota: 9.0\nPredata in saptamana: 12\nDeadline: 12\nFeedback: BINE\n\n",
+                    Files.readString(directory.resolve(NUME + ".txt")));
+        }
+        finally {
+            for (Path file : list(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+        assertTrue(reports.writeReport("1"));
+        assertEquals(1, Files.readString(REPORT).split("Tema: ").length - 1);
+    }
+
+    @Test
+    public void generateAllReports_SameFilesAsSequential() throws IOException {
+        List<Nota> note = new ArrayList<>();
+        for (int student = 3; student <= 60; student++) {
+            service.saveStudent(String.valueOf(student), "student" + (student % 50), 221);
+            note.add(new Nota(new Pair<>(String.valueOf(student), "1"), student % 10, 12, "BINE"));
+            if (student % 3 == 0) {
+                note.add(new Nota(new Pair<>(String.valueOf(student), "2"), 10, 11, "OK"));
+            }
+        }
+        service.saveNotaBatch(note);
+
+        Path sequential = Files.createTempDirectory("reports_sequential");
+        Path parallel = Files.createTempDirectory("reports_parallel");
+        try {
+            for (Student student : service.findAllStudents()) {
+                reports.writeReport(student.getID(), sequential);
+            }
+            assertEquals(52, service.generateAllReports(parallel, 4));
+
+            List<Path> files = list(sequential);
+            assertEquals(52, files.size());
+            assertEquals(files.stream().map(Path::getFileName).collect(Collectors.toList()),
+                    list(parallel).stream().map(Path::getFileName).collect(Collectors.toList()));
+            for (Path file : files) {
+                assertArrayEquals(Files.readAllBytes(file), Files.readAllBytes(parallel.resolve(file.getFileName())));
+            }
+        }
+        finally {
+            for (Path directory : Arrays.asList(sequential, parallel)) {
+                for (Path file : list(directory)) {
+                    Files.delete(file);
+                }
+                Files.delete(directory);
+            }
+        }
+    }
+
+    @Test
+    public void generateAllReports_Progress_EveryReportCountedOnce() throws IOException {
+        for (int student = 3; student <= 40; student++) {
+            service.saveStudent(String.valueOf(student), "student" + student, 221);
+        }
+
+        Path directory = Files.createTempDirectory("reports_progress");
+        try {
+            List<Integer> done = Collections.synchronizedList(new ArrayList<>());
+            ReportsResult result = service.generateAllReports(directory, 4, (count, total) -> {
+                assertEquals(40, total);
+                done.add(count);
+            });
+            assertEquals(40, result.getTotal());
+            assertEquals(40, result.getWritten());
+            assertTrue(result.getElapsedNanos() > 0);
+            assertEquals(result.getTotal() * 1e9 / result.getElapsedNanos(), result.getRapoartePeSecunda(), 1e-6);
+            Collections.sort(done);
+            assertEquals(IntStream.rangeClosed(1, 40).boxed().collect(Collectors.toList()), done);
+        }
+        finally {
+            for (Path file : list(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import repository.TemaXMLRepository;
+import repository.UnitOfWork;
+import service.Service;
+import validation.NotaValidator;
+import validation.StudentValidator;
+import validation.TemaValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class UnitOfWorkTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+
+    private StudentXMLRepository studentRepository;
+    private NotaXMLRepository gradeRepository;
+    private Service service;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File temeFile = TestUtils.createXMLFile(TestUtils.HOMEWORK_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        TemaXMLRepository temaRepository = new TemaXMLRepository(new TemaValidator(), temeFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+        service = new Service(studentRepository, temaRepository, gradeRepository);
+
+        service.saveStudent("1", "ana", 221);
+        service.saveTema("1", "DESCRIPTION", 12, 1);
+        service.saveTema("2", "DESCRIPTION", 12, 1);
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.HOMEWORK_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+        new File(STUDENT_TEST_TXT_FILE).delete();
+    }
+
+    private static String read(String fileName) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void write_Snapshot_SingleFlushAtCommit() throws IOException {
+        String before = read(TestUtils.GRADES_TEST_XML_FILE);
+
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(gradeRepository)) {
+            gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 12, "BINE"));
+            gradeRepository.save(new Nota(new Pair<>("1", "2"), 8, 12, "OK"));
+            gradeRepository.delete(new Pair<>("1", "1"));
+
+            assertEquals(before, read(TestUtils.GRADES_TEST_XML_FILE));
+            unitOfWork.commit();
+        }
+
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(1, reloaded.findByStudent("1").size());
+        assertEquals(8, reloaded.findOne(new Pair<>("1", "2")).getNota(), 0.01);
+    }
+
+    @Test
+    public void write_Journal_OneAppendWithMixedRecords() throws IOException {
+        gradeRepository.enableJournal(100);
+
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(gradeRepository)) {
+            gradeRepository.save(new Nota(new Pair<>("1", "1"), 9, 12, "BINE"));
+            gradeRepository.update(new Nota(new Pair<>("1", "1"), 10, 12, "FOARTE BINE"));
+
+            assertFalse(new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").exists());
+        }
+
+        assertEquals(2, read(TestUtils.GRADES_TEST_XML_FILE + ".journal").split("\n").length);
+        NotaXMLRepository reloaded = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE);
+        assertEquals(10, reloaded.findOne(new Pair<>("1", "1")).getNota(), 0.01);
+    }
+
+    @Test
+    public void write_TextRepository_AppendsCoalesced() throws IOException {
+        new File(STUDENT_TEST_TXT_FILE).createNewFile();
+        StudentFileRepository textRepository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(textRepository)) {
+            textRepository.save(new Student("1", "ana", 221));
+            textRepository.save(new Student("2", "maria", 222));
+
+            assertEquals("", read(STUDENT_TEST_TXT_FILE));
+        }
+
+        assertEquals("1#ana#221\n2#maria#222\n", read(STUDENT_TEST_TXT_FILE));
+    }
+
+    @Test
+    public void saveNota_StudentLockedByWriter_WaitsForReferenceCheck() throws Exception {
+        CountDownLatch saved = new CountDownLatch(1);
+        Thread grader;
+
+        try (UnitOfWork unitOfWork = new UnitOfWork().write(studentRepository)) {
+            grader = new Thread(() -> {
+                try {
+                    service.saveNota("2", "1", 9, 12, "BINE");
+                }
+                catch (Exception e) {
+                    e.printStackTrace();
+                }
+                saved.countDown();
+            });
+            grader.start();
+
+            assertFalse(saved.await(200, TimeUnit.MILLISECONDS));
+            studentRepository.save(new Student("2", "maria", 222));
+        }
+
+        assertTrue(saved.await(5, TimeUnit.SECONDS));
+        grader.join();
+        assertEquals(9, gradeRepository.findOne(new Pair<>("2", "1")).getNota(), 0.01);
+    }
+}
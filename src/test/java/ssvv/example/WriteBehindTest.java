@@ -0,0 +1,143 @@
+package ssvv.example;
+
+import domain.Student;
+import metrics.Metrics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.StudentFileRepository;
+import repository.StudentXMLRepository;
+import validation.StudentValidator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBehindTest {
+    private static final String STUDENT_TEST_TXT_FILE = "student_test.txt";
+    private static final long HOUR = 3_600_000;
+
+    private StudentXMLRepository studentRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        studentRepository = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        studentRepository.close();
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(STUDENT_TEST_TXT_FILE).delete();
+    }
+
+    private static int size(Iterable<Student> students) {
+        ArrayList<Student> studentList = new ArrayList<>();
+        students.forEach(studentList::add);
+        return studentList.size();
+    }
+
+    private static int onDisk() {
+        return size(new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE).findAll());
+    }
+
+    private static long writes() {
+        return Metrics.timer("StudentXMLRepository.write").snapshot().getCount();
+    }
+
+    private static void awaitEquals(int expected, IntSupplier actual) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (actual.getAsInt() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, actual.getAsInt());
+    }
+
+    private void saveStudents(int from, int to) {
+        for (int student = from; student < to; student++) {
+            studentRepository.save(new Student(String.valueOf(student), "student" + student, 221));
+        }
+    }
+
+    @Test
+    public void burst_CoalescedIntoOneWrite() {
+        studentRepository.enableWriteBehind(HOUR, 1000);
+        long before = writes();
+
+        saveStudents(0, 200);
+        studentRepository.update(new Student("7", "renamed", 222));
+        studentRepository.delete("8");
+        assertEquals(0, onDisk());
+        assertEquals(before, writes());
+
+        studentRepository.flush();
+        assertEquals(before + 1, writes());
+        assertEquals(199, onDisk());
+        studentRepository.flush();
+        assertEquals(before + 1, writes());
+    }
+
+    @Test
+    public void dirtyThreshold_FlushedInTheBackground() throws InterruptedException {
+        studentRepository.enableWriteBehind(HOUR, 50);
+
+        saveStudents(0, 49);
+        Thread.sleep(100);
+        assertEquals(0, onDisk());
+        saveStudents(49, 50);
+        awaitEquals(50, WriteBehindTest::onDisk);
+    }
+
+    @Test
+    public void interval_FlushedInTheBackground() throws InterruptedException {
+        studentRepository.enableWriteBehind(50, 1000);
+        assertTrue(studentRepository.isWriteBehind());
+
+        saveStudents(0, 10);
+        awaitEquals(10, WriteBehindTest::onDisk);
+        saveStudents(10, 20);
+        awaitEquals(20, WriteBehindTest::onDisk);
+    }
+
+    @Test
+    public void close_PendingMutationsWritten() {
+        studentRepository.enableWriteBehind(HOUR, 1000);
+        saveStudents(0, 5);
+
+        studentRepository.close();
+        assertFalse(studentRepository.isWriteBehind());
+        assertEquals(5, onDisk());
+
+        saveStudents(5, 6);
+        assertEquals(6, onDisk());
+    }
+
+    @Test
+    public void textRepository_FindAllKeepsPendingMutations() throws IOException {
+        try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE)) {
+            fileWriter.write("1#ana#221\n2#maria#222\n");
+        }
+        try (StudentFileRepository repository = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE)) {
+            repository.enableWriteBehind(HOUR, 1000);
+            repository.save(new Student("3", "ioana", 223));
+            repository.delete("1");
+            try (FileWriter fileWriter = new FileWriter(STUDENT_TEST_TXT_FILE, true)) {
+                fileWriter.write("4#elena#224\n");
+            }
+
+            assertEquals(2, size(repository.findAll()));
+            assertEquals(3, size(new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE).findAll()));
+        }
+
+        StudentFileRepository reloaded = new StudentFileRepository(new StudentValidator(), STUDENT_TEST_TXT_FILE);
+        assertEquals(2, size(reloaded.findAll()));
+        assertEquals("ioana", reloaded.findOne("3").getNume());
+    }
+}
@@ -0,0 +1,132 @@
+package ssvv.example;
+
+import domain.Nota;
+import domain.Pair;
+import domain.Student;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import repository.NotaXMLRepository;
+import repository.StudentXMLRepository;
+import validation.NotaValidator;
+import validation.StudentValidator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+
+public class XMLFormatTest {
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n";
+
+    private StudentXMLRepository studentRepository;
+    private NotaXMLRepository gradeRepository;
+
+    @Before
+    public void setUp() throws IOException {
+        File studentFile = TestUtils.createXMLFile(TestUtils.STUDENT_TEST_XML_FILE);
+        File noteFile = TestUtils.createXMLFile(TestUtils.GRADES_TEST_XML_FILE);
+
+        studentRepository = new StudentXMLRepository(new StudentValidator(), studentFile.getPath());
+        gradeRepository = new NotaXMLRepository(new NotaValidator(), noteFile.getPath());
+    }
+
+    @After
+    public void tearDown() {
+        new File(TestUtils.STUDENT_TEST_XML_FILE).delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE).delete();
+    }
+
+    private static String read(String fileName) throws IOException {
+        return new String(Files.readAllBytes(Paths.get(fileName)), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void write_Grade_SameLayoutAsBefore() throws IOException {
+        gradeRepository.save(new Nota(new Pair<>("1", "2"), 7.25, 9, "]]> >"));
+
+        assertEquals(XML_DECLARATION +
+                "<Entitati>\n" +
+                "    <nota IDStudent=\"1\" IDTema=\"2\">\n" +
+                "        <Nota>7.25</Nota>\n" +
+                "        <SaptamanaPredare>9</SaptamanaPredare>\n" +
+                "        <Feedback>]]&gt; &gt;</Feedback>\n" +
+                "    </nota>\n" +
+                "</Entitati>\n", read(TestUtils.GRADES_TEST_XML_FILE));
+    }
+
+    @Test
+    public void write_EmptyFeedback_EmptyElement() throws IOException {
+        gradeRepository.save(new Nota(new Pair<>("1", "3"), 10, 9, ""));
+
+        assertEquals(XML_DECLARATION +
+                "<Entitati>\n" +
+                "    <nota IDStudent=\"1\" IDTema=\"3\">\n" +
+                "        <Nota>10.0</Nota>\n" +
+                "        <SaptamanaPredare>9</SaptamanaPredare>\n" +
+                "        <Feedback/>\n" +
+                "    </nota>\n" +
+                "</Entitati>\n", read(TestUtils.GRADES_TEST_XML_FILE));
+    }
+
+    @Test
+    public void write_SpecialCharacters_EscapedAndReadBack() throws IOException {
+        studentRepository.save(new Student("1 \"<&>\"", "ana & <maria> \"x\" 'y' ăé€\r\n", 221));
+
+        assertEquals(XML_DECLARATION +
+                "<Entitati>\n" +
+                "    <student ID=\"1 &quot;&lt;&amp;&gt;&quot;\">\n" +
+                "        <Nume>ana &amp; &lt;maria&gt; \"x\" 'y' ăé€&#13;\n</Nume>\n" +
+                "        <Grupa>221</Grupa>\n" +
+                "    </student>\n" +
+                "</Entitati>\n", read(TestUtils.STUDENT_TEST_XML_FILE));
+
+        Student student = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE).findOne("1 \"<&>\"");
+        assertEquals("ana & <maria> \"x\" 'y' ăé€\r\n", student.getNume());
+    }
+
+    @Test
+    public void write_WhitespaceInAttribute_CharacterReferencesAndReadBack() throws IOException {
+        studentRepository.save(new Student("1\t\"<&>\"\n2\r", "ana", 221));
+
+        assertEquals(XML_DECLARATION +
+                "<Entitati>\n" +
+                "    <student ID=\"1&#9;&quot;&lt;&amp;&gt;&quot;&#10;2&#13;\">\n" +
+                "        <Nume>ana</Nume>\n" +
+                "        <Grupa>221</Grupa>\n" +
+                "    </student>\n" +
+                "</Entitati>\n", read(TestUtils.STUDENT_TEST_XML_FILE));
+
+        Student student = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE).findOne("1\t\"<&>\"\n2\r");
+        assertEquals("ana", student.getNume());
+    }
+
+    @Test
+    public void journal_WhitespaceInAttribute_ReadBack() throws IOException {
+        studentRepository.enableJournal(100);
+        studentRepository.save(new Student("1\t\n2", "ana", 221));
+        gradeRepository.enableJournal(100);
+        gradeRepository.save(new Nota(new Pair<>("1\t\n2", "3\n"), 7, 9, "bine"));
+
+        assertEquals("<save><student ID=\"1&#9;&#10;2\"><Nume>ana</Nume><Grupa>221</Grupa></student></save>\n",
+                read(TestUtils.STUDENT_TEST_XML_FILE + ".journal"));
+        Student student = new StudentXMLRepository(new StudentValidator(), TestUtils.STUDENT_TEST_XML_FILE).findOne("1\t\n2");
+        assertEquals("ana", student.getNume());
+        Nota nota = new NotaXMLRepository(new NotaValidator(), TestUtils.GRADES_TEST_XML_FILE).findOne(new Pair<>("1\t\n2", "3\n"));
+        assertEquals(7, nota.getNota(), 0);
+
+        new File(TestUtils.STUDENT_TEST_XML_FILE + ".journal").delete();
+        new File(TestUtils.GRADES_TEST_XML_FILE + ".journal").delete();
+    }
+
+    @Test
+    public void write_AllDeleted_EmptyRoot() throws IOException {
+        studentRepository.save(new Student("1", "ana", 221));
+        studentRepository.delete("1");
+
+        assertEquals(XML_DECLARATION + "<Entitati/>\n", read(TestUtils.STUDENT_TEST_XML_FILE));
+    }
+}